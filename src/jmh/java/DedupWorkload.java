@@ -0,0 +1,43 @@
+import benchmarks.NumberStream;
+import benchmarks.Workload;
+
+public class DedupWorkload implements Workload {
+
+    private static final long SEED = 42;
+    private static final int MAX_NUM_UNIQUE_INPUTS = 1_000_000_000;
+
+    private final DedupMode mode;
+    private final NumberStream numberStream;
+    private final int[] numbers;
+    private DedupSet dedupSet;
+
+    /**
+     * Constructor to create the workload of the deduplication done by LogFileTask.submit on the client threads
+     * @param batchSize Number of numbers checked by every operation
+     * @param duplicateRatio Ratio of numbers which have already been received
+     * @param variant 'heap' or 'paged'. The 'mapped' structure is measured by WriteLoopWorkload, since it needs files.
+     */
+    public DedupWorkload(int batchSize, double duplicateRatio, String variant) {
+        mode = DedupMode.valueOf(variant.toUpperCase());
+        numberStream = new NumberStream(batchSize, duplicateRatio, SEED);
+        numbers = new int[batchSize];
+    }
+
+    @Override
+    public void reset() {
+        dedupSet = mode == DedupMode.PAGED ? new PagedBitSet(MAX_NUM_UNIQUE_INPUTS) : new ConcurrentBitSet(MAX_NUM_UNIQUE_INPUTS);
+        numberStream.reset();
+    }
+
+    @Override
+    public long run() {
+        numberStream.fill(numbers);
+        long duplicates = 0;
+        for (int number : numbers) {
+            if (dedupSet.testAndSet(number)) {
+                duplicates++;
+            }
+        }
+        return duplicates;
+    }
+}
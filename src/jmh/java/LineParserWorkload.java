@@ -0,0 +1,52 @@
+import benchmarks.NumberStream;
+import benchmarks.Workload;
+
+import java.nio.charset.StandardCharsets;
+
+public class LineParserWorkload implements Workload {
+
+    private static final long SEED = 42;
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+
+    private final byte[] input;
+    private final boolean escaped;
+    private LineParser parser;
+
+    /**
+     * Constructor to create the workload of the parsing done by ClientHandler, which feeds LineParser with every byte
+     * read from the socket in chunks of the size of its read buffer
+     * @param batchSize Number of lines parsed by every operation
+     * @param duplicateRatio Ratio of duplicated numbers, which doesn't change the cost of parsing
+     * @param variant 'plain' for clean lines, or 'escaped' for lines with escape characters
+     */
+    public LineParserWorkload(int batchSize, double duplicateRatio, String variant) {
+        escaped = variant.equals("escaped");
+        int[] numbers = new int[batchSize];
+        new NumberStream(batchSize, duplicateRatio, SEED).fill(numbers);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < batchSize; i++) {
+            if (escaped && i % 4 == 0) {
+                text.append('\t');
+            }
+            text.append(String.format("%09d", numbers[i])).append(System.lineSeparator());
+        }
+        input = text.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public void reset() {
+        parser = new LineParser();
+    }
+
+    @Override
+    public long run() {
+        long result = 0;
+        for (int offset = 0; offset < input.length; offset += READ_BUFFER_SIZE) {
+            int end = Math.min(offset + READ_BUFFER_SIZE, input.length);
+            for (int i = offset; i < end; i++) {
+                result += parser.feed(input[i]);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+import benchmarks.NumberStream;
+import benchmarks.Workload;
+
+public class UtilsWorkload implements Workload {
+
+    private static final long SEED = 42;
+
+    private final String variant;
+    private final String[] lines;
+
+    /**
+     * Constructor to create the workload of the String-based helpers which processed every line before LineParser
+     * @param batchSize Number of lines processed by every operation
+     * @param duplicateRatio Ratio of duplicated numbers, which doesn't change the cost of these helpers
+     * @param variant 'stripLeadingZeros' or 'removeEscapeCharacters'
+     */
+    public UtilsWorkload(int batchSize, double duplicateRatio, String variant) {
+        this.variant = variant;
+        int[] numbers = new int[batchSize];
+        new NumberStream(batchSize, duplicateRatio, SEED).fill(numbers);
+        lines = new String[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            String line = String.format("%09d", numbers[i]);
+            lines[i] = variant.equals("removeEscapeCharacters") && i % 4 == 0 ? "\t" + line + "\r\n" : line;
+        }
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public long run() {
+        long result = 0;
+        if (variant.equals("stripLeadingZeros")) {
+            for (String line : lines) {
+                result += Utils.stripLeadingZeros(line).length();
+            }
+        } else {
+            for (String line : lines) {
+                result += Utils.removeEscapeCharacters(line).length();
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,94 @@
+import benchmarks.NumberStream;
+import benchmarks.Workload;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+public class WriteLoopWorkload implements Workload {
+
+    private static final long SEED = 42;
+    private static final int MAX_NUM_UNIQUE_INPUTS = 1_000_000_000;
+    private static final int NUMBERS_PER_OPERATION = 4096;
+    private static final int DRAIN_BATCH_SIZE = 4096;
+
+    private final ServerOptions options;
+    private final NumberStream numberStream;
+    private final int[] numbers;
+    private final int[] batch;
+    private final IntRingBuffer queue;
+    private final FlowControl flowControl;
+    private final ServerMetrics metrics;
+    private final File file;
+    private DedupSet dedupSet;
+    private WriterPartition partition;
+    private NumberWriter writer;
+
+    /**
+     * Constructor to create the workload of the path followed by every number from LogFileTask.submit to the log file:
+     * deduplication, WriterPartition.put, and the drain and group commit steps of WriterPartition.run. Both sides run
+     * on the same thread, so it measures the cost of the path and not the contention between producers and the writer.
+     * WriterPartition.run itself only returns once its queue is closed, so its steps are repeated here instead of
+     * opening the file and starting a writer for every operation.
+     * @param batchSize Numbers written before a group commit, as server.writerBatchSize
+     * @param duplicateRatio Ratio of numbers which have already been received
+     * @param variant Writer backend: 'stream', 'channel' or 'mapped'
+     */
+    public WriteLoopWorkload(int batchSize, double duplicateRatio, String variant) throws IOException {
+        options = new ServerOptions();
+        options.setWriterBackend(WriterBackend.valueOf(variant.toUpperCase()));
+        options.setWriterBatchSize(batchSize);
+        numberStream = new NumberStream(NUMBERS_PER_OPERATION, duplicateRatio, SEED);
+        numbers = new int[NUMBERS_PER_OPERATION];
+        batch = new int[DRAIN_BATCH_SIZE];
+        queue = new IntRingBuffer(NUMBERS_PER_OPERATION);
+        flowControl = new FlowControl(queue, options.getQueueHighWatermark(), options.getQueueLowWatermark());
+        metrics = new ServerMetrics(queue, flowControl, 0);
+        file = File.createTempFile("numbers", ".log");
+        file.deleteOnExit();
+    }
+
+    @Override
+    public void reset() throws IOException {
+        close();
+        Files.deleteIfExists(file.toPath());
+        dedupSet = new ConcurrentBitSet(MAX_NUM_UNIQUE_INPUTS);
+        partition = new WriterPartition(0, 0, MAX_NUM_UNIQUE_INPUTS, queue, file.getPath(), options, flowControl, metrics,
+                new AckSender(1), false);
+        writer = NumberWriter.open(file.getPath(), options);
+        numberStream.reset();
+    }
+
+    @Override
+    public long run() throws IOException, InterruptedException {
+        numberStream.fill(numbers);
+        for (int number : numbers) {
+            if (!dedupSet.testAndSet(number)) {
+                partition.put(number);
+            }
+        }
+        int drained;
+        long written = 0;
+        while ((drained = queue.drainTo(batch)) > 0) {
+            flowControl.onDrained();
+            for (int i = 0; i < drained; i++) {
+                writer.write(batch[i]);
+            }
+            written += drained;
+            if (writer.getPendingNumbers() >= options.getWriterBatchSize()) {
+                int batchSize = writer.getPendingNumbers();
+                writer.commit();
+                metrics.recordCommit(batchSize);
+            }
+        }
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
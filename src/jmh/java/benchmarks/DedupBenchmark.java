@@ -0,0 +1,55 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of deduplicating a batch of numbers. The structure is created again before every iteration, so iterations
+ * are short enough for the fresh numbers not to fill it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class DedupBenchmark {
+
+    @Param({"1024", "16384"})
+    public int batchSize;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double duplicateRatio;
+
+    @Param({"heap", "paged"})
+    public String dedup;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void createWorkload() {
+        workload = Workloads.create("DedupWorkload", batchSize, duplicateRatio, dedup);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetWorkload() throws Exception {
+        workload.reset();
+    }
+
+    @Benchmark
+    public long testAndSet() throws Exception {
+        return workload.run();
+    }
+}
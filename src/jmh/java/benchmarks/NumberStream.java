@@ -0,0 +1,63 @@
+package benchmarks;
+
+import java.util.Random;
+
+public class NumberStream {
+
+    private static final int RANGE = 1_000_000_000;
+    // A prime which is coprime with RANGE, so the fresh numbers visit the whole range before repeating
+    private static final long STRIDE = 104_729;
+
+    private final boolean[] duplicated;
+    private final int[] duplicateIndexes;
+    private final int[] recentNumbers;
+    private long nextFresh;
+    private int recentCount;
+    private int recentPosition;
+
+    /**
+     * Constructor to create an endless stream of 9-digit numbers in which a given ratio of them have already appeared.
+     * Which positions are duplicates is decided once, so generating the numbers only costs a few arithmetic operations
+     * and is the same for every variant being compared.
+     * @param patternSize Number of positions of the pattern of duplicates, which is repeated
+     * @param duplicateRatio Ratio, from 0 to 1, of numbers which repeat a recent number
+     * @param seed Seed of the pattern
+     */
+    public NumberStream(int patternSize, double duplicateRatio, long seed) {
+        Random random = new Random(seed);
+        duplicated = new boolean[patternSize];
+        duplicateIndexes = new int[patternSize];
+        recentNumbers = new int[Math.max(1, patternSize)];
+        for (int i = 0; i < patternSize; i++) {
+            duplicated[i] = random.nextDouble() < duplicateRatio;
+            duplicateIndexes[i] = random.nextInt(recentNumbers.length);
+        }
+    }
+
+    /**
+     * It fills an array with the next numbers of the stream
+     * @param numbers Array to be filled, as long as the pattern
+     */
+    public void fill(int[] numbers) {
+        for (int i = 0; i < numbers.length; i++) {
+            if (duplicated[i] && recentCount > 0) {
+                numbers[i] = recentNumbers[duplicateIndexes[i] % recentCount];
+            } else {
+                int number = (int) (nextFresh++ * STRIDE % RANGE);
+                numbers[i] = number;
+                recentNumbers[recentPosition] = number;
+                recentPosition = recentPosition + 1 == recentNumbers.length ? 0 : recentPosition + 1;
+                recentCount = Math.min(recentCount + 1, recentNumbers.length);
+            }
+        }
+    }
+
+    /**
+     * It restarts the stream from its first number
+     */
+    public void reset() {
+        nextFresh = 0;
+        recentCount = 0;
+        recentPosition = 0;
+    }
+}
@@ -0,0 +1,77 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning the lines received from a client into numbers. ClientHandler.readInputBuffer and
+ * isClientInputValid have been replaced by LineParser, which is measured together with the String-based helpers of
+ * Utils it replaced. Every operation handles a whole batch of lines.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParsingBenchmark {
+
+    @Param({"1024", "16384"})
+    public int batchSize;
+
+    @Param({"0.0", "0.5"})
+    public double duplicateRatio;
+
+    private Workload stripLeadingZeros;
+    private Workload removeEscapeCharacters;
+    private Workload lineParser;
+    private Workload lineParserEscaped;
+
+    @Setup(Level.Trial)
+    public void createWorkloads() {
+        stripLeadingZeros = Workloads.create("UtilsWorkload", batchSize, duplicateRatio, "stripLeadingZeros");
+        removeEscapeCharacters = Workloads.create("UtilsWorkload", batchSize, duplicateRatio, "removeEscapeCharacters");
+        lineParser = Workloads.create("LineParserWorkload", batchSize, duplicateRatio, "plain");
+        lineParserEscaped = Workloads.create("LineParserWorkload", batchSize, duplicateRatio, "escaped");
+    }
+
+    @Setup(Level.Iteration)
+    public void resetWorkloads() throws Exception {
+        stripLeadingZeros.reset();
+        removeEscapeCharacters.reset();
+        lineParser.reset();
+        lineParserEscaped.reset();
+    }
+
+    @Benchmark
+    public long stripLeadingZeros() throws Exception {
+        return stripLeadingZeros.run();
+    }
+
+    @Benchmark
+    public long removeEscapeCharacters() throws Exception {
+        return removeEscapeCharacters.run();
+    }
+
+    @Benchmark
+    public long lineParser() throws Exception {
+        return lineParser.run();
+    }
+
+    @Benchmark
+    public long lineParserEscaped() throws Exception {
+        return lineParserEscaped.run();
+    }
+}
@@ -0,0 +1,24 @@
+package benchmarks;
+
+/**
+ * Code measured by a benchmark. The classes of the server live in the default package, which JMH benchmarks can't
+ * belong to and named packages can't import, so every workload is written in the default package against this
+ * interface and created by name with Workloads.
+ */
+public interface Workload extends AutoCloseable {
+
+    /**
+     * It prepares a fresh state, so every iteration of the benchmark starts from the same point. It isn't measured.
+     */
+    void reset() throws Exception;
+
+    /**
+     * It runs one operation of the benchmark
+     * @return Value derived from the work done, to be consumed by JMH so the work isn't optimized away
+     */
+    long run() throws Exception;
+
+    @Override
+    default void close() throws Exception {
+    }
+}
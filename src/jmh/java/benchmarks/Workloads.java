@@ -0,0 +1,29 @@
+package benchmarks;
+
+public final class Workloads {
+
+    /**
+     * Private constructor to avoid creating objects
+     */
+    private Workloads() {
+    }
+
+    /**
+     * It creates a workload of the default package by its class name
+     * @param className Name of the class, which must have a constructor taking the batch size, the ratio of duplicated
+     *                  numbers and a variant
+     * @param batchSize Number of items handled by every operation, or group commit size for the writers
+     * @param duplicateRatio Ratio, from 0 to 1, of numbers which have already been received
+     * @param variant Implementation to be measured, which depends on the workload
+     * @return Workload ready to be reset
+     */
+    public static Workload create(String className, int batchSize, double duplicateRatio, String variant) {
+        try {
+            return (Workload) Class.forName(className)
+                    .getConstructor(int.class, double.class, String.class)
+                    .newInstance(batchSize, duplicateRatio, variant);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Workload '" + className + "' couldn't be created", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of taking 4096 numbers from submit to the log file: deduplication, the ring buffer and the drain and group
+ * commit steps of WriterPartition.run, for every writer backend. The log file is created again before every iteration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class WriteLoopBenchmark {
+
+    @Param({"64", "4096"})
+    public int batchSize;
+
+    @Param({"0.0", "0.5", "0.9"})
+    public double duplicateRatio;
+
+    @Param({"stream", "channel", "mapped"})
+    public String writer;
+
+    private Workload workload;
+
+    @Setup(Level.Trial)
+    public void createWorkload() {
+        workload = Workloads.create("WriteLoopWorkload", batchSize, duplicateRatio, writer);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetWorkload() throws Exception {
+        workload.reset();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeWorkload() throws Exception {
+        workload.close();
+    }
+
+    @Benchmark
+    public long submitAndCommit() throws Exception {
+        return workload.run();
+    }
+}
@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class AckSender {
+
+    private static final long RETRY_NANOS = 1_000_000;
+
+    private final int streams;
+    private final Set<ClientAcks> clients;
+    private final LongAdder sentAcks;
+    private volatile Thread sender;
+    private volatile boolean signalled;
+    private volatile boolean closed;
+
+    /**
+     * Constructor to create the sender of the acks of every client which has asked for them. It sleeps until a writer
+     * has committed numbers or a client has recorded new ones, and then sends each client a single cumulative ack, so
+     * the acks are coalesced per commit instead of being sent per number. Nothing is done for clients which haven't
+     * asked for acks.
+     * @param streams Number of positions which tell what has been persisted, one per writer partition
+     */
+    public AckSender(int streams) {
+        this.streams = streams;
+        clients = ConcurrentHashMap.newKeySet();
+        sentAcks = new LongAdder();
+    }
+
+    /**
+     * It starts acknowledging the numbers of a client
+     * @param channel Channel where the acks of the client are written
+     * @param blocking True if a write to the channel can block until the client reads
+     * @return Acks of the client, to be given to submit
+     */
+    public ClientAcks open(WritableByteChannel channel, boolean blocking) {
+        ClientAcks acks = new ClientAcks(channel, blocking, this, streams);
+        acks.start();
+        clients.add(acks);
+        return acks;
+    }
+
+    /**
+     * It stops acknowledging the numbers of a client which has left
+     * @param acks Acks of the client
+     */
+    public void close(ClientAcks acks) {
+        clients.remove(acks);
+        acks.close();
+    }
+
+    /**
+     * It wakes the sender up if any client is waiting for acks. It is called by the writers after every commit, so it
+     * doesn't do anything else.
+     */
+    public void wakeUp() {
+        if (clients.isEmpty()) {
+            return;
+        }
+        signalled = true;
+        LockSupport.unpark(sender);
+    }
+
+    /**
+     * It sends the acks until it is closed. A client on a non-blocking channel whose ack couldn't be fully written,
+     * because it isn't reading them fast enough, is retried every millisecond even if nothing new has been committed.
+     * Clients on blocking channels are written by their own threads, so none of them blocks the others. A client whose
+     * channel fails stops being acknowledged.
+     * @param logFileTask LogFileTask whose writers tell what has been persisted
+     */
+    public void run(LogFileTask logFileTask) {
+        sender = Thread.currentThread();
+        boolean retry = false;
+        while (!closed) {
+            if (!signalled) {
+                if (retry) {
+                    LockSupport.parkNanos(this, RETRY_NANOS);
+                } else {
+                    LockSupport.park(this);
+                }
+                if (!signalled && !retry) {
+                    continue;
+                }
+            }
+            signalled = false;
+            long[] persisted = logFileTask.getPersistedPositions();
+            retry = false;
+            for (ClientAcks acks : clients) {
+                long sentLines = acks.getSentLines();
+                try {
+                    retry |= acks.send(persisted);
+                } catch (IOException e) {
+                    close(acks);
+                }
+                if (acks.getSentLines() > sentLines) {
+                    sentAcks.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * It stops the sender once the clients have left
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(sender);
+    }
+
+    /**
+     * Get the acks sent to every client
+     */
+    public long getSentAcks() {
+        return sentAcks.sum();
+    }
+}
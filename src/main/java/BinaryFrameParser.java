@@ -0,0 +1,66 @@
+public class BinaryFrameParser implements InputParser {
+
+    /**
+     * Frame header which asks the server to shut down, like the 'terminate' keyword of the text protocol
+     */
+    public static final int TERMINATE_OPCODE = -1;
+
+    /**
+     * Maximum number of numbers of a single frame
+     */
+    public static final int MAX_FRAME_NUMBERS = 1 << 16;
+
+    private static final int MAX_NUMBER = 999_999_999;
+
+    private int value;
+    private int valueBytes;
+    private int remainingNumbers;
+    private boolean violated;
+
+    /**
+     * Constructor to create a parser of the binary protocol for a single client. The client sends frames made of a
+     * big-endian int header followed by as many big-endian ints as the header says. A header of TERMINATE_OPCODE
+     * stands for the 'terminate' keyword. A number out of the range 0 to 999999999, a negative header or a frame
+     * longer than MAX_FRAME_NUMBERS is a protocol violation, and the client is disconnected as with an invalid line.
+     */
+    public BinaryFrameParser() {
+    }
+
+    /**
+     * It processes the next byte received from the client. Numbers are assembled from their four bytes, without any
+     * decimal parsing.
+     * @param b Byte received from the client
+     * @return The number when its last byte has been received. Otherwise LineParser.INCOMPLETE, LineParser.INVALID
+     * or LineParser.TERMINATE.
+     */
+    @Override
+    public int feed(byte b) {
+        if (violated) {
+            return LineParser.INVALID;
+        }
+        value = (value << 8) | (b & 0xFF);
+        if (++valueBytes < Integer.BYTES) {
+            return LineParser.INCOMPLETE;
+        }
+        int received = value;
+        value = 0;
+        valueBytes = 0;
+        if (remainingNumbers > 0) {
+            remainingNumbers--;
+            return received >= 0 && received <= MAX_NUMBER ? received : violation();
+        }
+        if (received == TERMINATE_OPCODE) {
+            return LineParser.TERMINATE;
+        }
+        if (received < 0 || received > MAX_FRAME_NUMBERS) {
+            return violation();
+        }
+        remainingNumbers = received;
+        return LineParser.INCOMPLETE;
+    }
+
+    private int violation() {
+        violated = true;
+        return LineParser.INVALID;
+    }
+}
@@ -0,0 +1,283 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+public class BulkLoader {
+
+    private static final int CHUNK_SIZE = 16 * 1024 * 1024;
+    private static final int BOUNDARY_SEARCH_SIZE = 64;
+    private static final int DIGITS_INPUT_SIZE = 9;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final LogFileTask logFileTask;
+    private final ForkJoinPool pool;
+    private final int chunkSize;
+    private final LongAdder loadedNumbers;
+    private final LongAdder invalidLines;
+
+    /**
+     * Constructor to create a loader which reads files with the same format as the clients, a number of nine digits
+     * per line, and feeds their numbers to the same deduplication and log file pipeline as the clients, in parallel.
+     * @param logFileTask LogFileTask where the numbers are submitted
+     * @param parallelism Number of threads which parse the files, or 0 to use one per available processor
+     */
+    public BulkLoader(LogFileTask logFileTask, int parallelism) {
+        this(logFileTask, parallelism, CHUNK_SIZE);
+    }
+
+    /**
+     * Constructor to create a loader which splits the files into chunks of a given size
+     * @param logFileTask LogFileTask where the numbers are submitted
+     * @param parallelism Number of threads which parse the files, or 0 to use one per available processor
+     * @param chunkSize Minimum number of bytes of every chunk but the last one of each file
+     */
+    BulkLoader(LogFileTask logFileTask, int parallelism, int chunkSize) {
+        if (parallelism < 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Parallelism can't be negative and the chunk size must be positive");
+        }
+        this.logFileTask = logFileTask;
+        this.chunkSize = chunkSize;
+        pool = new ForkJoinPool(parallelism == 0 ? Runtime.getRuntime().availableProcessors() : parallelism);
+        loadedNumbers = new LongAdder();
+        invalidLines = new LongAdder();
+    }
+
+    /**
+     * It loads every file, one after the other, and stops the threads of the loader. Lines which aren't valid are
+     * counted as invalid lines of a client, but they don't stop the load, since the rest of the file is still valid.
+     * @param fileNames Names of the files
+     * @throws IOException If a file can't be read, in which case the numbers already loaded are kept
+     * @throws InterruptedException If the thread is interrupted while loading
+     */
+    public void load(List<String> fileNames) throws IOException, InterruptedException {
+        try {
+            for (String fileName : fileNames) {
+                loadFile(Paths.get(fileName));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * It stops a load in progress without waiting for it. The chunks which haven't been started are cancelled and the
+     * threads of the loader are interrupted, so load returns once the numbers already parsed have been submitted.
+     */
+    public void cancel() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * It splits a file into chunks which end at a line separator, and parses the chunks in parallel. Each chunk is
+     * memory-mapped by the task which parses it, so files bigger than a single mapping can be loaded.
+     * @param file File to be loaded
+     */
+    private void loadFile(Path file) throws IOException, InterruptedException {
+        long startNanos = System.nanoTime();
+        long numbersBefore = loadedNumbers.sum();
+        long invalidLinesBefore = invalidLines.sum();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = splitAtLines(channel);
+            pool.invoke(new ChunkTask(channel, bounds, 0, bounds.length - 1));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (CancellationException | RejectedExecutionException e) { //the load has been cancelled
+            throw new InterruptedException("Load of '" + file + "' has been interrupted");
+        }
+        System.out.println((loadedNumbers.sum() - numbersBefore) + " numbers and " + (invalidLines.sum() - invalidLinesBefore)
+                + " invalid lines have been loaded from '" + file + "' in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms");
+    }
+
+    /**
+     * It finds where the chunks of a file start. Every chunk but the last one ends right after the first line separator
+     * found once it has reached the chunk size, so no line is split between two chunks.
+     * @param channel Channel of the file
+     * @return Positions where the chunks start, followed by the length of the file
+     */
+    private long[] splitAtLines(FileChannel channel) throws IOException {
+        List<Long> bounds = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(BOUNDARY_SEARCH_SIZE);
+        long size = channel.size();
+        long position = 0;
+        bounds.add(position);
+        position += chunkSize;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            int newline = -1;
+            for (int i = 0; i < read && newline < 0; i++) {
+                if (buffer.get(i) == '\n') {
+                    newline = i;
+                }
+            }
+            if (newline < 0) {
+                position += Math.max(read, 1);
+                continue;
+            }
+            position += newline + 1;
+            if (position < size) {
+                bounds.add(position);
+            }
+            position += chunkSize;
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Task which parses a range of chunks, splitting it in halves until a single chunk is left
+     */
+    private class ChunkTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long[] bounds;
+        private final int firstChunk;
+        private final int endChunk;
+
+        /**
+         * @param channel Channel of the file
+         * @param bounds Positions where the chunks start, followed by the length of the file
+         * @param firstChunk Index of the first chunk parsed by the task
+         * @param endChunk Index of the first chunk after those parsed by the task
+         */
+        ChunkTask(FileChannel channel, long[] bounds, int firstChunk, int endChunk) {
+            this.channel = channel;
+            this.bounds = bounds;
+            this.firstChunk = firstChunk;
+            this.endChunk = endChunk;
+        }
+
+        @Override
+        protected void compute() {
+            if (endChunk - firstChunk > 1) {
+                int middle = (firstChunk + endChunk) >>> 1;
+                invokeAll(new ChunkTask(channel, bounds, firstChunk, middle),
+                        new ChunkTask(channel, bounds, middle, endChunk));
+                return;
+            }
+            try {
+                parse(channel.map(FileChannel.MapMode.READ_ONLY, bounds[firstChunk],
+                        bounds[endChunk] - bounds[firstChunk]));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) { //submit() exception
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            }
+        }
+
+        /**
+         * It parses a chunk and submits every valid number. Lines of exactly nine digits and a line separator, which
+         * are almost all of them, are parsed in place. Any other line is fed to the same parser as the clients, so it
+         * is validated by the same rules. A last line without a line separator is ignored, as it is when a client
+         * disconnects. The chunk is left unfinished if the load is cancelled.
+         * @param chunk Mapped bytes of the chunk
+         * @throws InterruptedException If the load is cancelled, after counting the numbers already submitted
+         */
+        private void parse(MappedByteBuffer chunk) throws InterruptedException {
+            LineParser parser = new LineParser();
+            boolean lineStart = true;
+            long numbers = 0;
+            long invalid = 0;
+            while (chunk.hasRemaining() && !Thread.currentThread().isInterrupted()) {
+                int result = lineStart ? parseLine(chunk) : LineParser.INCOMPLETE;
+                if (result == LineParser.INCOMPLETE) {
+                    result = parser.feed(chunk.get());
+                }
+                lineStart = result != LineParser.INCOMPLETE;
+                if (result >= 0) {
+                    logFileTask.submit(result);
+                    numbers++;
+                } else if (lineStart) {
+                    logFileTask.getMetrics().countInvalidLine();
+                    invalid++;
+                }
+            }
+            loadedNumbers.add(numbers);
+            invalidLines.add(invalid);
+            if (chunk.hasRemaining()) {
+                throw new InterruptedException();
+            }
+        }
+
+        /**
+         * It parses a line of exactly nine digits followed by the line separator, and moves the chunk after it
+         * @param chunk Mapped bytes of the chunk, positioned at the start of a line
+         * @return The number, or INCOMPLETE, without moving the chunk, if the line must be fed to the parser
+         */
+        private int parseLine(MappedByteBuffer chunk) {
+            int start = chunk.position();
+            if (chunk.limit() - start < DIGITS_INPUT_SIZE + LINE_SEPARATOR.length) {
+                return LineParser.INCOMPLETE;
+            }
+            int number = 0;
+            for (int i = 0; i < DIGITS_INPUT_SIZE; i++) {
+                int digit = chunk.get(start + i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return LineParser.INCOMPLETE;
+                }
+                number = number * 10 + digit;
+            }
+            for (int i = 0; i < LINE_SEPARATOR.length; i++) {
+                if (chunk.get(start + DIGITS_INPUT_SIZE + i) != LINE_SEPARATOR[i]) {
+                    return LineParser.INCOMPLETE;
+                }
+            }
+            chunk.position(start + DIGITS_INPUT_SIZE + LINE_SEPARATOR.length);
+            return number;
+        }
+    }
+
+    /**
+     * Get the valid numbers read from the files, including duplicates
+     */
+    public long getLoadedNumbers() {
+        return loadedNumbers.sum();
+    }
+
+    /**
+     * Get the invalid lines read from the files
+     */
+    public long getInvalidLines() {
+        return invalidLines.sum();
+    }
+
+    /**
+     * It loads files into the log file without accepting any client, and exits once every number has been written.
+     * The options are read from system properties, as the server does, so the same deduplication mode and log file
+     * can be used to resume afterwards.
+     * @param args Names of the files to be loaded
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length == 0) {
+            throw new RuntimeException("At least one file must be given");
+        }
+        ServerOptions options = ServerOptions.fromSystemProperties();
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(options.getQueueCapacity()), options);
+        logFileTask.run();
+        try {
+            new BulkLoader(logFileTask, options.getBulkParallelism()).load(Arrays.asList(args));
+        } finally {
+            logFileTask.printReport();
+            logFileTask.close();
+        }
+    }
+}
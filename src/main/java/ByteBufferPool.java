@@ -0,0 +1,37 @@
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+public class ByteBufferPool {
+
+    private final BlockingQueue<ByteBuffer> buffers;
+    private final int bufferSize;
+
+    /**
+     * Constructor to create a pool of direct ByteBuffers, so the event loops don't allocate a new buffer on every read
+     * @param bufferSize Capacity in bytes of every buffer
+     * @param maxPooledBuffers Maximum number of idle buffers kept by the pool
+     */
+    public ByteBufferPool(int bufferSize, int maxPooledBuffers) {
+        this.bufferSize = bufferSize;
+        buffers = new ArrayBlockingQueue<>(maxPooledBuffers);
+    }
+
+    /**
+     * It takes an idle buffer from the pool, or allocates a new one if the pool is empty
+     * @return Cleared buffer ready to be written
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        return buffer != null ? buffer : ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * It gives a buffer back to the pool. If the pool is already full, the buffer is discarded.
+     * @param buffer Buffer previously obtained from acquire
+     */
+    public void release(ByteBuffer buffer) {
+        buffer.clear();
+        buffers.offer(buffer);
+    }
+}
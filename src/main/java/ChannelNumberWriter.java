@@ -0,0 +1,81 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class ChannelNumberWriter implements NumberWriter {
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_LINE_BYTES = 10 + LINE_SEPARATOR.length;
+    private static final int MIN_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final ForcePolicy forcePolicy;
+    private int pendingNumbers;
+
+    /**
+     * Constructor to create a writer which formats numbers straight into a reusable direct ByteBuffer, and writes
+     * the whole buffer with a single FileChannel.write call when a group of numbers is committed
+     * @param fileName Name of the file where numbers are appended
+     * @param batchSize Number of numbers which fit in the buffer, so a full batch is written with a single call
+     * @param forcePolicy Policy which decides whether a commit waits for the storage device
+     */
+    public ChannelNumberWriter(String fileName, int batchSize, ForcePolicy forcePolicy) throws IOException {
+        this.forcePolicy = forcePolicy;
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        buffer = ByteBuffer.allocateDirect(Math.max(MIN_BUFFER_SIZE, batchSize * MAX_LINE_BYTES));
+    }
+
+    @Override
+    public void write(int number) throws IOException {
+        if (buffer.remaining() < MAX_LINE_BYTES) {
+            writeBuffer();
+        }
+        Utils.putNumber(buffer, number);
+        buffer.put(LINE_SEPARATOR);
+        pendingNumbers++;
+    }
+
+    @Override
+    public void commit() throws IOException {
+        writeBuffer();
+        if (forcePolicy == ForcePolicy.COMMIT) {
+            channel.force(false);
+        }
+        pendingNumbers = 0;
+    }
+
+    /**
+     * It writes every byte of the buffer to the file and clears it. If a write fails, the bytes which haven't been
+     * written are moved to the start of the buffer, which is left ready to be filled again, so they are written by
+     * the next commit instead of being lost or written twice.
+     */
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            buffer.compact();
+        }
+    }
+
+    @Override
+    public int getPendingNumbers() {
+        return pendingNumbers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+        } finally {
+            channel.close();
+        }
+    }
+}
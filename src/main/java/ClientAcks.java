@@ -0,0 +1,176 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.locks.LockSupport;
+
+public class ClientAcks {
+
+    private static final String ACK_PREFIX = "ack ";
+
+    private final WritableByteChannel channel;
+    private final AckSender ackSender;
+    private final long[] required;
+    private final Queue<long[]> marks;
+    private long lines;
+    private final boolean blocking;
+    private Thread writer;
+    private ByteBuffer pending;
+    private volatile long sentLines;
+    private volatile IOException writeError;
+    private volatile boolean closed;
+
+    /**
+     * Constructor to create the acknowledgements of a client which has asked for them. The client is told, with a
+     * cumulative "ack N" line, that its first N numbers have been persisted. The client thread records what each of
+     * its numbers needs to be persisted, and the AckSender sends the acks from its own thread once the writers have
+     * committed it. A blocking channel is written by a virtual thread of the client, so a client which doesn't read
+     * its acks never blocks the AckSender. Since the acks are cumulative, that thread only writes the last one. It is
+     * started by start.
+     * @param channel Channel where the acks are written
+     * @param blocking True if a write can block until the client reads, false if the channel is non-blocking
+     * @param ackSender Sender which is woken up when the client has recorded new numbers
+     * @param streams Number of positions which tell what has been persisted, one per writer partition
+     */
+    public ClientAcks(WritableByteChannel channel, boolean blocking, AckSender ackSender, int streams) {
+        this.channel = channel;
+        this.ackSender = ackSender;
+        required = new long[streams];
+        marks = new ArrayDeque<>();
+        pending = ByteBuffer.allocate(0);
+        this.blocking = blocking;
+    }
+
+    /**
+     * It starts the writer of a blocking channel. It must be called before the acks are sent.
+     */
+    public void start() {
+        if (blocking) {
+            writer = Thread.ofVirtual().name("ack-writer").start(this::writeAcks);
+        }
+    }
+
+    /**
+     * It records that a number of the client is only persisted once a stream has reached a position. It must be called
+     * by the thread which reads from the client.
+     * @param stream Index of the writer partition which owns the number
+     * @param position Position the partition must have persisted
+     */
+    public void require(int stream, long position) {
+        if (position > required[stream]) {
+            required[stream] = position;
+        }
+    }
+
+    /**
+     * It records the numbers the client has submitted since the last call, so their lines can be acknowledged once
+     * every position they require has been persisted. It is called once per read, so the acks never track single
+     * numbers.
+     * @param numbers Numbers submitted since the last call
+     */
+    public void mark(int numbers) {
+        if (numbers == 0) {
+            return;
+        }
+        lines += numbers;
+        long[] mark = Arrays.copyOf(required, required.length + 1);
+        mark[required.length] = lines;
+        synchronized (marks) {
+            marks.add(mark);
+        }
+        ackSender.wakeUp();
+    }
+
+    /**
+     * It sends a single ack for the last line whose numbers have all been persisted, if it is beyond the last line
+     * acknowledged. An ack which doesn't fit in the socket buffer is kept and finished before the next one, so acks
+     * are never interleaved. With a blocking channel, the ack is handed to the writer of the client instead. It must
+     * only be called by the AckSender.
+     * @param persisted Position persisted by every stream
+     * @return True if part of an ack couldn't be written and must be retried
+     * @throws IOException If the channel is closed or fails
+     */
+    public boolean send(long[] persisted) throws IOException {
+        if (writeError != null) {
+            throw writeError;
+        }
+        if (pending.hasRemaining()) {
+            channel.write(pending);
+            if (pending.hasRemaining()) {
+                return true;
+            }
+        }
+        long persistedLines = sentLines;
+        synchronized (marks) {
+            while (!marks.isEmpty() && isPersisted(marks.peek(), persisted)) {
+                persistedLines = marks.poll()[required.length];
+            }
+        }
+        if (persistedLines > sentLines) {
+            sentLines = persistedLines;
+            if (blocking) {
+                LockSupport.unpark(writer);
+                return false;
+            }
+            pending = ack(persistedLines);
+            channel.write(pending);
+        }
+        return pending.hasRemaining();
+    }
+
+    /**
+     * It writes the last ack to a blocking channel until the client leaves or the channel fails. Acks sent by the
+     * AckSender while a write is blocked are skipped, since the next one written covers them.
+     */
+    private void writeAcks() {
+        long writtenLines = 0;
+        try {
+            while (!closed) {
+                long lines = sentLines;
+                if (lines == writtenLines) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                ByteBuffer ack = ack(lines);
+                while (ack.hasRemaining()) {
+                    channel.write(ack);
+                }
+                writtenLines = lines;
+            }
+        } catch (IOException e) {
+            writeError = e;
+        }
+    }
+
+    private ByteBuffer ack(long lines) {
+        return ByteBuffer.wrap((ACK_PREFIX + lines + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * It stops the writer of a blocking channel once the client has left. A write which is still blocked fails when
+     * the connection of the client is closed.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+    }
+
+    private boolean isPersisted(long[] mark, long[] persisted) {
+        for (int i = 0; i < persisted.length; i++) {
+            if (persisted[i] < mark[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Get the last line acknowledged to the client, which may not have been fully written yet
+     */
+    public long getSentLines() {
+        return sentLines;
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.concurrent.locks.LockSupport;
+
+public class ClientCredits {
+
+    private static final long PRODUCER_BACKOFF_NANOS = 50_000;
+
+    private final int limit;
+    private final long[] sequences;
+    private final IntRingBuffer[] queues;
+    private int head;
+    private int size;
+    private long waitedNanos;
+
+    /**
+     * Constructor to create the credits of a client, which limit how many of its numbers can be waiting in the ring
+     * buffers at the same time. Since the writers drain the buffers in order, the numbers queued ahead of any number
+     * are at most the sum of the limits of every client, whatever the others send, and clients which keep their
+     * limits full get a share of the writers proportional to their limits. The credits are only used by the thread
+     * which reads from the client, so they aren't thread-safe.
+     * @param limit Maximum number of numbers of the client waiting in the ring buffers
+     */
+    public ClientCredits(int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("The limit of numbers in flight must be positive");
+        }
+        this.limit = limit;
+        sequences = new long[limit];
+        queues = new IntRingBuffer[limit];
+    }
+
+    /**
+     * It waits until the client has fewer numbers than its limit waiting in the ring buffers. It only waits for the
+     * writers to drain its own numbers, so a client which sends faster than its share waits while the others don't.
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void acquire() throws InterruptedException {
+        if (tryAcquire()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        do {
+            LockSupport.parkNanos(this, PRODUCER_BACKOFF_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        } while (!tryAcquire());
+        waitedNanos += System.nanoTime() - startNanos;
+    }
+
+    /**
+     * It releases the credits of the numbers already taken by the writers, and tells whether another number can be
+     * queued. The numbers are released in the order they were queued, so a number drained from a partition which
+     * is ahead of the others may hold its credit a little longer.
+     * @return True if the client has fewer numbers than its limit waiting in the ring buffers
+     */
+    public boolean tryAcquire() {
+        while (size > 0 && sequences[head] < queues[head].getConsumedCount()) {
+            queues[head] = null;
+            head = head + 1 == limit ? 0 : head + 1;
+            size--;
+        }
+        return size < limit;
+    }
+
+    /**
+     * It records a number queued by the client. It must be called after acquire, with the sequence returned by the
+     * ring buffer.
+     * @param queue Ring buffer where the number has been queued
+     * @param sequence Sequence of the number in the ring buffer
+     */
+    public void record(IntRingBuffer queue, long sequence) {
+        int tail = head + size < limit ? head + size : head + size - limit;
+        queues[tail] = queue;
+        sequences[tail] = sequence;
+        size++;
+    }
+
+    /**
+     * Get the number of numbers of the client waiting in the ring buffers, as of the last call to tryAcquire
+     */
+    public int getInFlight() {
+        return size;
+    }
+
+    /**
+     * Get limit
+     */
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Get the total time, in nanoseconds, the client has waited for credits
+     */
+    public long getWaitedNanos() {
+        return waitedNanos;
+    }
+}
@@ -1,119 +1,126 @@
-import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.math.NumberUtils;
-
 import java.io.*;
-import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.concurrent.BlockingQueue;
+import java.net.SocketTimeoutException;
+import java.nio.channels.Channels;
 import java.util.concurrent.Semaphore;
-import java.util.concurrent.ThreadPoolExecutor;
 
 public class ClientHandler implements Runnable {
 
-    private static final int SHUTDOWN_TIMEOUT = 20;
-    private static final int DIGITS_INPUT_SIZE = 9;
-    private static final String TERMINATE_KEYWORD = "terminate";
+    private static final int READ_BUFFER_SIZE = 8 * 1024;
+    private static final int READ_TIMEOUT_MILLIS = 100;
 
     private final Socket clientSocket;
-    private final ServerSocket serverSocket;
-    private final ThreadPoolExecutor threadPool;
-    private final BlockingQueue<String> clientInputsQueue;
+    private final Runnable terminate;
+    private final LogFileTask logFileTask;
     private final Semaphore serverAccess;
+    private final boolean blockingReads;
 
 
     /**
      * Constructor to create an object which is responsible for handling the logic related to a client's connection
      * @param clientSocket Client Socket obtained when it connects to the server
-     * @param serverSocket Server Socket instance
-     * @param threadPool Thread pool which contains all clients running on different threads
-     * @param clientInputsQueue BlockingQueue to add all numbers which meet the conditions to be saved in the file
+     * @param terminate Action which starts shutting the server down when the 'terminate' keyword is received. It
+     *                  mustn't wait for the clients, since it runs on the thread of one of them.
+     * @param logFileTask LogFileTask to submit all numbers which meet the conditions to be saved in the file
      * @param serverAccess Semaphore to be used when a permit must be released.
+     * @param blockingReads True if the thread can block while reading, which is the case of virtual threads. Otherwise
+     *                      reads time out regularly, so platform threads notice when they are interrupted.
      */
-    public ClientHandler(Socket clientSocket, ServerSocket serverSocket, ThreadPoolExecutor threadPool,
-                         BlockingQueue<String> clientInputsQueue, Semaphore serverAccess) {
+    public ClientHandler(Socket clientSocket, Runnable terminate, LogFileTask logFileTask, Semaphore serverAccess,
+                         boolean blockingReads) {
         this.clientSocket = clientSocket;
-        this.serverSocket = serverSocket;
-        this.threadPool = threadPool;
-        this.clientInputsQueue = clientInputsQueue;
+        this.terminate = terminate;
+        this.logFileTask = logFileTask;
         this.serverAccess = serverAccess;
+        this.blockingReads = blockingReads;
     }
 
     /**
-     * It handles the execution of a client. It uses a BufferedInputStream which allows to read the client's input
-     * asynchronously, by using a buffer, and analyse the input to decide whether to add it to the queue or disconnect
-     * all or one client.
+     * It handles the execution of a client. The bytes available in the socket are read in bulk and fed to a LineParser
+     * which decides whether every line must be added to the queue or whether one or all clients must be disconnected.
+     * If the first line is the 'binary' keyword, the rest of the bytes are fed to a BinaryFrameParser instead. If the
+     * first line is the 'acks' keyword, which may be followed by the 'binary' one, the numbers read are recorded after
+     * every read, so the client is told which of them have been persisted. Nothing is read while the clients are
+     * throttled, so the bytes sent by the client wait in the socket buffers and TCP flow control slows it down.
      */
     @Override
     public void run() {
-        try (BufferedInputStream reader = new BufferedInputStream(clientSocket.getInputStream())) {
-            String clientInput;
-            StringBuilder input = new StringBuilder();
+        ServerMetrics metrics = logFileTask.getMetrics();
+        ClientMetrics clientMetrics = metrics.openClient(String.valueOf(clientSocket.getRemoteSocketAddress()));
+        ClientCredits credits = logFileTask.openCredits(clientSocket.getInetAddress().getHostAddress());
+        clientMetrics.setCredits(credits);
+        ClientAcks acks = null;
+        try (InputStream reader = clientSocket.getInputStream()) {
+            if (!blockingReads) {
+                clientSocket.setSoTimeout(READ_TIMEOUT_MILLIS);
+            }
+            InputParser parser = new LineParser();
+            byte[] buffer = new byte[READ_BUFFER_SIZE];
             while (!Thread.interrupted()) {
-                clientInput = readInputBuffer(reader, input);
-                if (clientInput != null) {
-                    if (TERMINATE_KEYWORD.equals(clientInput)) {
+                logFileTask.getFlowControl().awaitCapacity();
+                int bytesRead = readInputBuffer(reader, buffer);
+                if (bytesRead < 0) {
+                    break;
+                }
+                int numbers = 0;
+                for (int i = 0; i < bytesRead; i++) {
+                    int clientInput = parser.feed(buffer[i]);
+                    if (clientInput >= 0) {
+                        logFileTask.submit(clientInput, credits, acks);
+                        numbers++;
+                    } else if (clientInput == LineParser.TERMINATE) {
                         System.out.println("Found 'terminate' keyword");
-                        Utils.shutdownAndAwaitTermination(threadPool, SHUTDOWN_TIMEOUT);
-                        serverSocket.close();
-                    } else if (!isClientInputValid(clientInput)) {
+                        terminate.run();
+                        Thread.currentThread().interrupt();
+                        break;
+                    } else if (clientInput == LineParser.BINARY) {
+                        parser = new BinaryFrameParser();
+                    } else if (clientInput == LineParser.ACKS && logFileTask.acceptsAcks()) {
+                        acks = logFileTask.getAckSender().open(Channels.newChannel(clientSocket.getOutputStream()), true);
+                    } else if (clientInput == LineParser.INVALID || clientInput == LineParser.ACKS) {
+                        metrics.countInvalidLine();
                         Thread.currentThread().interrupt();
                         clientSocket.close();
-                    } else {
-                        try {
-                            clientInputsQueue.add(Utils.stripLeadingZeros(clientInput));
-                        } catch (NumberFormatException e) {
-                            System.out.println("The number couldn't be processed. " + e.getMessage());
-                        }
+                        break;
                     }
-                    input = new StringBuilder();
+                }
+                clientMetrics.addNumbers(numbers);
+                if (acks != null) {
+                    acks.mark(numbers);
                 }
             }
         } catch (IOException e) {
-            System.out.println("Exception while managing the client running on " + Thread.currentThread().getName() + ": " + e.getMessage());
+            if (!clientSocket.isClosed()) { //otherwise the server is shutting down and has disconnected every client
+                System.out.println("Exception while managing the client running on " + Thread.currentThread().getName() + ": " + e.getMessage());
+            }
+        } catch (InterruptedException e) { //awaitCapacity() and submit() exception, also while waiting for credits
+            System.out.println("Client running on " + Thread.currentThread().getName() + " has been interrupted");
         } finally {
+            if (acks != null) {
+                logFileTask.getAckSender().close(acks);
+            }
+            metrics.closeClient(clientMetrics);
             System.out.println("Releasing access to the server");
             serverAccess.release();
         }
     }
 
     /**
-     * Method that reads the client's input via a BufferedInputStream and stores every single character read in
-     * the StringBuilder variable
-     * @param bufferedInputStream BufferedInputStream to read the client's input asynchronously
-     * @param stringBuilder StringBuilder to let the method handle the string efficiently
-     * @return It returns a Null when the client hasn't introduced a line separator character, and the concrete String
-     * when the line separator character is recognized
+     * Method that reads, in a single call, every byte the client has already sent, or waits for the next bytes. On
+     * platform threads the wait times out, so the thread can notice when it has been interrupted without spinning on
+     * available(), which can't tell that the client has closed the connection. Virtual threads block without a
+     * timeout, since a blocked virtual thread doesn't hold its carrier thread and its read is interrupted when the
+     * thread is.
+     * @param inputStream InputStream of the client's socket
+     * @param buffer Buffer where the bytes are stored
+     * @return Number of bytes read, which is 0 if the client hasn't sent anything new, or -1 if the client has closed
+     * the connection
      */
-    private String readInputBuffer(BufferedInputStream bufferedInputStream, StringBuilder stringBuilder) throws IOException {
-        boolean inputFound = false;
-
-        while(bufferedInputStream.available() > 0 && !inputFound) {
-            char c = (char) bufferedInputStream.read();
-            if (c == '\b') {
-                stringBuilder.deleteCharAt(stringBuilder.length() - 1);
-            } else {
-                stringBuilder.append(c);
-            }
-            if (StringUtils.endsWith(stringBuilder.toString(), System.lineSeparator())) {
-                inputFound = true;
-            }
+    private int readInputBuffer(InputStream inputStream, byte[] buffer) throws IOException {
+        try {
+            return inputStream.read(buffer);
+        } catch (SocketTimeoutException e) {
+            return 0;
         }
-        if (inputFound){
-            return Utils.removeEscapeCharacters(stringBuilder.toString());
-        }
-        return null;
-    }
-
-    /**
-     * Check if the string clientInput is a valid input. It takes into account the size of the string, if they are digits
-     * and if it's 0 or a positive number
-     * @param clientInput Input introduced by the client
-     * @return True if valid, false otherwise
-     */
-    private boolean isClientInputValid(String clientInput) {
-        return clientInput != null
-                && clientInput.length() == DIGITS_INPUT_SIZE
-                && NumberUtils.isDigits(clientInput)
-                && Integer.parseInt(clientInput) >= 0;
     }
 }
@@ -0,0 +1,71 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ClientMetrics {
+
+    private final String name;
+    private final long connectedNanos;
+    private final AtomicLong numbers;
+    private ClientCredits credits;
+
+    /**
+     * Constructor to create the counters of a connected client. They are only updated by the thread which reads from
+     * the client, so updates are plain ordered writes, and they are read by the reports and by JMX.
+     * @param name Name which identifies the client, usually its remote address
+     */
+    public ClientMetrics(String name) {
+        this.name = name;
+        connectedNanos = System.nanoTime();
+        numbers = new AtomicLong();
+    }
+
+    /**
+     * It adds the numbers received by the client in one read. It must only be called by the thread which reads from
+     * the client.
+     * @param count Number of valid numbers received, unique or duplicated
+     */
+    public void addNumbers(long count) {
+        if (count > 0) {
+            numbers.lazySet(numbers.get() + count);
+        }
+    }
+
+    /**
+     * Get the average number of valid numbers received per second since the client connected
+     */
+    public double getNumbersPerSecond() {
+        long elapsedNanos = Math.max(1, System.nanoTime() - connectedNanos);
+        return numbers.get() * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * Get numbers
+     */
+    public long getNumbers() {
+        return numbers.get();
+    }
+
+    /**
+     * Get name
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Set credits, so they are shown together with the counters
+     */
+    public void setCredits(ClientCredits credits) {
+        this.credits = credits;
+    }
+
+    @Override
+    public String toString() {
+        String counters = String.format("%s numbers=%d numbersPerSecond=%.1f", name, getNumbers(), getNumbersPerSecond());
+        if (credits == null) {
+            return counters;
+        }
+        return counters + " inFlight=" + credits.getInFlight() + "/" + credits.getLimit() + " creditWaitMillis="
+                + TimeUnit.NANOSECONDS.toMillis(credits.getWaitedNanos());
+    }
+}
@@ -0,0 +1,299 @@
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class Cluster {
+
+    private static final long KEY_SPACE = 1_000_000_000L;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final int nodeIndex;
+    private final List<InetSocketAddress> nodes;
+    private LogFileTask logFileTask;
+    private final int rangeStart;
+    private final int rangeEnd;
+    private final PeerLink[] links;
+    private final AtomicLongArray peerUniqueTotals;
+    private final LongAdder receivedNumbers;
+    private final AtomicIntegerArray finishedPeers;
+    private final CountDownLatch remainingPeers;
+    private final Queue<Socket> peerConnections;
+    private final Queue<Thread> readers;
+    private final long shutdownNanos;
+    private ServerSocket peerServerSocket;
+    private Runnable onTerminate;
+    private volatile boolean closed;
+
+    /**
+     * Constructor to create the view of a cluster of servers from one of its nodes. The key space is split into as
+     * many consecutive ranges of the same size as nodes, in the order they are listed. Each node deduplicates and logs
+     * only the numbers of its range, and forwards the rest to their owners through a persistent link per peer.
+     * @param options Options which list the nodes of the cluster and give the index of this node
+     */
+    public Cluster(ServerOptions options) {
+        nodes = options.getClusterNodes();
+        nodeIndex = options.getClusterNodeIndex();
+        if (nodeIndex < 0 || nodeIndex >= nodes.size()) {
+            throw new IllegalArgumentException("The index of the node must be lower than the number of nodes of the cluster");
+        }
+        rangeStart = rangeStart(nodeIndex);
+        rangeEnd = rangeStart(nodeIndex + 1);
+        links = new PeerLink[nodes.size()];
+        for (int i = 0; i < links.length; i++) {
+            if (i != nodeIndex) {
+                links[i] = new PeerLink(nodeIndex, nodes.get(i));
+            }
+        }
+        peerUniqueTotals = new AtomicLongArray(nodes.size());
+        receivedNumbers = new LongAdder();
+        finishedPeers = new AtomicIntegerArray(nodes.size());
+        remainingPeers = new CountDownLatch(nodes.size() - 1);
+        peerConnections = new ConcurrentLinkedQueue<>();
+        readers = new ConcurrentLinkedQueue<>();
+        shutdownNanos = TimeUnit.SECONDS.toNanos(options.getClusterShutdownSeconds());
+    }
+
+    /**
+     * It calculates the first number owned by a node. Node i owns the numbers n for which n * nodes / 10^9 rounds down
+     * to i, so the owner of a number can be calculated without searching the ranges.
+     * @param index Index of the node, or the number of nodes to get the end of the key space
+     * @return First number of the range
+     */
+    private int rangeStart(int index) {
+        return (int) ((index * KEY_SPACE + nodes.size() - 1) / nodes.size());
+    }
+
+    /**
+     * It starts listening for the links of the peers on the port of this node, and connects to every peer. Peers
+     * which haven't started yet are retried until they do, while the numbers forwarded to them wait in their links.
+     * @param logFileTask LogFileTask where the numbers forwarded by peers are submitted
+     * @param onTerminate Action which shuts this server down when a peer asks the cluster to terminate
+     * @throws IOException If the port of this node can't be bound
+     */
+    public void start(LogFileTask logFileTask, Runnable onTerminate) throws IOException {
+        this.logFileTask = logFileTask;
+        this.onTerminate = onTerminate;
+        peerServerSocket = new ServerSocket(nodes.get(nodeIndex).getPort());
+        Thread.ofPlatform().name("peer-acceptor").start(this::acceptPeers);
+        for (PeerLink link : links) {
+            if (link != null) {
+                link.start();
+            }
+        }
+        System.out.println("Node " + nodeIndex + " of " + nodes.size() + " owns the numbers from " + rangeStart
+                + " to " + (rangeEnd - 1));
+    }
+
+    /**
+     * It tells whether a number belongs to the range of this node
+     * @param number Number received by a client
+     * @return True if it must be deduplicated and logged by this node
+     */
+    public boolean owns(int number) {
+        return number >= rangeStart && number < rangeEnd;
+    }
+
+    /**
+     * It queues a number owned by another node in the link to its owner
+     * @param number Number which this node doesn't own
+     * @throws InterruptedException If the thread is interrupted while waiting for space in the link
+     */
+    public void forward(int number) throws InterruptedException {
+        links[(int) (number * (long) nodes.size() / KEY_SPACE)].forward(number);
+    }
+
+    /**
+     * It accepts the links of the peers, and reads each of them on its own thread
+     */
+    private void acceptPeers() {
+        try {
+            while (!closed) {
+                Socket connection = peerServerSocket.accept();
+                peerConnections.add(connection);
+                readers.add(Thread.ofPlatform().name("peer-reader-" + connection.getRemoteSocketAddress())
+                        .start(() -> readPeer(connection)));
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                System.out.println("Error while accepting peers: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * It reads the frames sent by a peer until the peer closes the link: numbers of this node, which are submitted as
+     * if a client had sent them, reports with the unique total of the peer, and the terminate opcode, which shuts this
+     * server down. The terminate opcode is the last frame of the peer, so it is acknowledged once every number before
+     * it has been submitted, and the peer is counted as finished.
+     * @param connection Connection opened by the peer
+     */
+    private void readPeer(Socket connection) {
+        try (DataInputStream input = new DataInputStream(
+                new BufferedInputStream(connection.getInputStream(), READ_BUFFER_SIZE));
+             DataOutputStream output = new DataOutputStream(connection.getOutputStream())) {
+            int peerIndex = input.readInt();
+            if (peerIndex < 0 || peerIndex >= nodes.size() || peerIndex == nodeIndex) {
+                System.out.println("A peer connected as unknown node " + peerIndex);
+                return;
+            }
+            while (true) {
+                int header = input.readInt();
+                if (header == PeerLink.TERMINATE_OPCODE) {
+                    onTerminate.run();
+                    output.writeInt(PeerLink.TERMINATE_ACK);
+                    output.flush();
+                    if (finishedPeers.compareAndSet(peerIndex, 0, 1)) {
+                        System.out.println("Node " + peerIndex + " has sent its last numbers and asked the cluster to terminate");
+                        remainingPeers.countDown();
+                    }
+                } else if (header == PeerLink.REPORT_OPCODE) {
+                    peerUniqueTotals.set(peerIndex, input.readLong());
+                } else if (header >= 0) {
+                    for (int i = 0; i < header; i++) {
+                        int number = input.readInt();
+                        if (!owns(number)) {
+                            System.out.println("Node " + peerIndex + " has forwarded " + number
+                                    + ", which this node doesn't own. Both nodes must list the same cluster nodes");
+                            return;
+                        }
+                        logFileTask.submit(number);
+                    }
+                    receivedNumbers.add(header);
+                } else {
+                    System.out.println("Node " + peerIndex + " has sent an unknown frame header: " + header);
+                    return;
+                }
+            }
+        } catch (EOFException e) {
+            // The peer has closed its link, which it opens again if it hasn't finished
+        } catch (IOException e) {
+            System.out.println("Error while reading from a peer: " + e.getMessage());
+        } catch (InterruptedException e) { //submit() exception
+            System.out.println("Link from a peer has been interrupted");
+        } finally {
+            peerConnections.remove(connection);
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * It prints the counters of the cluster together with the report of this node, and sends the unique total of this
+     * node to every peer, so each node prints an estimate of the unique total of the whole cluster. The totals of the
+     * peers are those received with their last report.
+     * @param localUniqueNumbers Unique numbers received by this node
+     */
+    public void printReport(long localUniqueNumbers) {
+        long clusterUniqueNumbers = localUniqueNumbers;
+        long forwardedNumbers = 0;
+        for (int i = 0; i < links.length; i++) {
+            if (links[i] != null) {
+                links[i].sendReport(localUniqueNumbers);
+                forwardedNumbers += links[i].getForwardedNumbers();
+                clusterUniqueNumbers += peerUniqueTotals.get(i);
+            }
+        }
+        System.out.println("Cluster unique total: " + clusterUniqueNumbers + ". Forwarded to peers: " + forwardedNumbers
+                + ". Received from peers: " + receivedNumbers.sum());
+    }
+
+    /**
+     * It shuts the links down in two phases, so no forwarded number is lost. First, the numbers still waiting in the
+     * links are sent to their owners, followed by the terminate opcode, which every peer acknowledges once it has
+     * submitted them, so the whole cluster shuts down. Then, it keeps reading from the peers until each of them has
+     * sent its own last numbers and closed its link. Both phases share the shutdown timeout of the cluster, so a node
+     * which can't be reached doesn't hold the shutdown back forever: once it expires, the links and the connections of
+     * the peers are closed, and the numbers which may not have reached their owners are reported. It must be called
+     * once no client can submit numbers, and before the LogFileTask is closed.
+     * @return True if every peer has acknowledged the numbers forwarded to it and has sent its own last numbers
+     */
+    public boolean close() {
+        if (peerServerSocket == null) {
+            return true;
+        }
+        long deadline = System.nanoTime() + shutdownNanos;
+        boolean complete = true;
+        try {
+            for (PeerLink link : links) {
+                if (link != null) {
+                    complete &= link.close(deadline);
+                }
+            }
+            if (remainingPeers.getCount() > 0) {
+                System.out.println("Waiting for " + remainingPeers.getCount() + " peers to send their last numbers");
+            }
+            if (!remainingPeers.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                System.out.println(remainingPeers.getCount() + " peers haven't sent their last numbers in time");
+                complete = false;
+            }
+            for (Thread reader : readers) {
+                reader.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+                complete &= !reader.isAlive();
+            }
+        } catch (InterruptedException e) {
+            complete = false;
+            Thread.currentThread().interrupt();
+        }
+        closed = true;
+        closeQuietly(peerServerSocket);
+        for (Socket connection : peerConnections) {
+            closeQuietly(connection);
+        }
+        try {
+            for (Thread reader : readers) { //a closed connection stops its reader, so nothing is submitted afterwards
+                reader.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!complete) {
+            System.out.println("The cluster hasn't shut down cleanly and some forwarded numbers may be missing from the logs");
+        }
+        return complete;
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            System.out.println("Error while closing a peer connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get the numbers received from the peers
+     */
+    public long getReceivedNumbers() {
+        return receivedNumbers.sum();
+    }
+
+    /**
+     * Get rangeStart
+     */
+    public int getRangeStart() {
+        return rangeStart;
+    }
+
+    /**
+     * Get rangeEnd, which is the first number not owned by this node
+     */
+    public int getRangeEnd() {
+        return rangeEnd;
+    }
+}
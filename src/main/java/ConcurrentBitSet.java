@@ -0,0 +1,95 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class ConcurrentBitSet implements DedupSet {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    private final AtomicLongArray words;
+
+    /**
+     * Constructor to create a fixed-size set of bits which can be read and updated by many threads without locks
+     * @param numBits Number of bits of the set. Valid indexes go from 0 to numBits - 1.
+     */
+    public ConcurrentBitSet(int numBits) {
+        words = new AtomicLongArray(((numBits - 1) >> ADDRESS_BITS_PER_WORD) + 1);
+    }
+
+    /**
+     * It sets a bit and tells whether it was already set. Only one of the threads setting the same bit at the same
+     * time gets false. A bit which is already set is detected with a plain read, so duplicates never write to memory.
+     * @param bitIndex Index of the bit
+     * @return True if the bit was already set, false if this call has set it
+     */
+    @Override
+    public boolean testAndSet(int bitIndex) {
+        int wordIndex = bitIndex >> ADDRESS_BITS_PER_WORD;
+        long mask = 1L << bitIndex;
+        long word = words.get(wordIndex);
+        while ((word & mask) == 0) {
+            long witness = words.compareAndExchange(wordIndex, word, word | mask);
+            if (witness == word) {
+                return false;
+            }
+            word = witness;
+        }
+        return true;
+    }
+
+    /**
+     * It clears a bit with a CAS on its word, so the other bits of the word set meanwhile are kept
+     * @param bitIndex Index of the bit
+     */
+    @Override
+    public void clear(int bitIndex) {
+        int wordIndex = bitIndex >> ADDRESS_BITS_PER_WORD;
+        long mask = 1L << bitIndex;
+        long word = words.get(wordIndex);
+        while ((word & mask) != 0) {
+            long witness = words.compareAndExchange(wordIndex, word, word & ~mask);
+            if (witness == word) {
+                return;
+            }
+            word = witness;
+        }
+    }
+
+    /**
+     * It returns the value of a bit
+     * @param bitIndex Index of the bit
+     * @return True if the bit is set
+     */
+    @Override
+    public boolean get(int bitIndex) {
+        return (words.get(bitIndex >> ADDRESS_BITS_PER_WORD) & (1L << bitIndex)) != 0;
+    }
+
+    /**
+     * It sets a bit
+     * @param bitIndex Index of the bit
+     */
+    @Override
+    public void set(int bitIndex) {
+        testAndSet(bitIndex);
+    }
+
+    /**
+     * It finds the first bit set at or after an index, skipping a whole word at a time when it is empty
+     * @param fromIndex Index where the search starts
+     * @return Index of the first bit set, or -1 if there isn't any
+     */
+    @Override
+    public int nextSetBit(int fromIndex) {
+        int wordIndex = fromIndex >> ADDRESS_BITS_PER_WORD;
+        if (wordIndex >= words.length()) {
+            return -1;
+        }
+        long word = words.get(wordIndex) & (-1L << fromIndex);
+        while (word == 0) {
+            if (++wordIndex == words.length()) {
+                return -1;
+            }
+            word = words.get(wordIndex);
+        }
+        return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+    }
+}
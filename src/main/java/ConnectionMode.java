@@ -0,0 +1,21 @@
+/**
+ * Strategies available to the server for handling the connections of its clients
+ */
+public enum ConnectionMode {
+
+    /**
+     * Every client is handled by its own ClientHandler running on a fixed thread pool
+     */
+    THREAD_PER_CLIENT,
+
+    /**
+     * Clients are multiplexed over a few non-blocking event loops built on a Selector
+     */
+    SELECTOR,
+
+    /**
+     * Every client is handled by its own ClientHandler running on a virtual thread, with blocking reads. The number of
+     * concurrent clients is only limited by the semaphore, not by the number of platform threads.
+     */
+    VIRTUAL_THREADS
+}
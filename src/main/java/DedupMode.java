@@ -0,0 +1,21 @@
+/**
+ * Structures available to remember which numbers have already been received
+ */
+public enum DedupMode {
+
+    /**
+     * A bit set on the Java heap which covers every possible number. It starts empty on every run.
+     */
+    HEAP,
+
+    /**
+     * A bit set in a memory-mapped file, off the Java heap, which is kept between runs together with the log file
+     */
+    MAPPED,
+
+    /**
+     * A bit set on the Java heap split into pages of 64 KB, which are only allocated when a number of their range is
+     * received. It starts empty on every run.
+     */
+    PAGED
+}
@@ -0,0 +1,55 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface DedupSet extends Closeable {
+
+    /**
+     * It sets a bit and tells whether it was already set. It can be called by many threads at the same time, and only
+     * one of the threads setting the same bit gets false.
+     * @param bitIndex Index of the bit
+     * @return True if the bit was already set, false if this call has set it
+     */
+    boolean testAndSet(int bitIndex);
+
+    /**
+     * It clears a bit which has just been set by testAndSet, when the number it stands for couldn't be kept
+     * @param bitIndex Index of the bit
+     */
+    void clear(int bitIndex);
+
+    /**
+     * It returns the value of a bit
+     * @param bitIndex Index of the bit
+     * @return True if the bit is set
+     */
+    boolean get(int bitIndex);
+
+    /**
+     * It sets a bit
+     * @param bitIndex Index of the bit
+     */
+    void set(int bitIndex);
+
+    /**
+     * It finds the first bit set at or after an index, so every bit set can be visited in ascending order with a
+     * sequential scan. Bits set by other threads during the scan may or may not be found.
+     * @param fromIndex Index where the search starts
+     * @return Index of the first bit set, or -1 if there isn't any
+     */
+    int nextSetBit(int fromIndex);
+
+    /**
+     * It records that every number of the set has been written to a log file of the given length, so the set can be
+     * used as it is on the next start. Sets which aren't persisted ignore it.
+     * @param logLength Length of the log file
+     */
+    default void checkpoint(long logLength) {
+    }
+
+    /**
+     * It releases the resources held by the set. Sets which only live in memory don't hold any.
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
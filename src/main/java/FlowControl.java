@@ -0,0 +1,154 @@
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+public class FlowControl {
+
+    private static final long PRODUCER_BACKOFF_NANOS = 100_000;
+    private static final long NOT_THROTTLED = 0;
+
+    private final List<IntRingBuffer> queues;
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final AtomicLong throttleStartNanos;
+    private final LongAdder throttledNanosTotal;
+    private final LongAdder throttleEventsTotal;
+    private final List<Runnable> resumeListeners;
+
+    /**
+     * Constructor to create the backpressure applied by the ring buffer to the clients. Once the buffer reaches the
+     * high watermark, the clients stop reading from their sockets, so TCP flow control slows down the senders, until
+     * the writer has drained the buffer down to the low watermark. The gap between both watermarks keeps the clients
+     * from being paused and resumed on every number.
+     * @param queue Ring buffer between the clients and the log file writer
+     * @param highWatermarkPercent Percentage of the capacity of the buffer at which the clients are paused
+     * @param lowWatermarkPercent Percentage of the capacity of the buffer at which the clients are resumed
+     */
+    public FlowControl(IntRingBuffer queue, int highWatermarkPercent, int lowWatermarkPercent) {
+        this(Collections.singletonList(queue), highWatermarkPercent, lowWatermarkPercent);
+    }
+
+    /**
+     * Constructor to create the backpressure applied by the ring buffers of several writer partitions, which must have
+     * the same capacity. The clients are paused when any buffer reaches the high watermark, since a client can't know
+     * which partition its next number goes to, and resumed once every buffer is down to the low watermark.
+     * @param queues Ring buffers between the clients and the writers of the partitions
+     * @param highWatermarkPercent Percentage of the capacity of a buffer at which the clients are paused
+     * @param lowWatermarkPercent Percentage of the capacity of a buffer at which the clients are resumed
+     */
+    public FlowControl(List<IntRingBuffer> queues, int highWatermarkPercent, int lowWatermarkPercent) {
+        if (lowWatermarkPercent < 0 || lowWatermarkPercent >= highWatermarkPercent || highWatermarkPercent > 100) {
+            throw new IllegalArgumentException("Watermarks must satisfy 0 <= low < high <= 100: low "
+                    + lowWatermarkPercent + ", high " + highWatermarkPercent);
+        }
+        this.queues = queues;
+        highWatermark = (int) ((long) queues.get(0).getCapacity() * highWatermarkPercent / 100);
+        lowWatermark = (int) ((long) queues.get(0).getCapacity() * lowWatermarkPercent / 100);
+        throttleStartNanos = new AtomicLong(NOT_THROTTLED);
+        throttledNanosTotal = new LongAdder();
+        throttleEventsTotal = new LongAdder();
+        resumeListeners = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * It tells whether the clients must stop reading, and starts throttling them if the buffer has just reached the
+     * high watermark
+     * @return True if the clients must not read from their sockets
+     */
+    public boolean isThrottled() {
+        if (throttleStartNanos.get() != NOT_THROTTLED) {
+            return true;
+        }
+        if (maxQueueSize() >= highWatermark && throttleStartNanos.compareAndSet(NOT_THROTTLED, System.nanoTime() | 1)) {
+            throttleEventsTotal.increment();
+            // The writer may have drained the buffer between the size check and the CAS, and it won't call
+            // onDrained again until it receives more numbers
+            onDrained();
+        }
+        return throttleStartNanos.get() != NOT_THROTTLED;
+    }
+
+    /**
+     * It parks the calling client while the clients are throttled. It must be called before reading from the socket,
+     * never with numbers read and not submitted yet.
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void awaitCapacity() throws InterruptedException {
+        while (isThrottled()) {
+            LockSupport.parkNanos(this, PRODUCER_BACKOFF_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * It resumes the clients if they are throttled and the buffer has been drained down to the low watermark. It is
+     * called by the writer after every drain, so the listeners usually run on the writer thread.
+     */
+    public void onDrained() {
+        long startNanos = throttleStartNanos.get();
+        if (startNanos != NOT_THROTTLED && maxQueueSize() <= lowWatermark
+                && throttleStartNanos.compareAndSet(startNanos, NOT_THROTTLED)) {
+            throttledNanosTotal.add(System.nanoTime() - startNanos);
+            for (Runnable listener : resumeListeners) {
+                listener.run();
+            }
+        }
+    }
+
+    /**
+     * It returns the size of the fullest buffer
+     * @return Number of ints in the fullest buffer
+     */
+    private int maxQueueSize() {
+        if (queues.size() == 1) {
+            return queues.get(0).size();
+        }
+        int maxSize = 0;
+        for (IntRingBuffer queue : queues) {
+            maxSize = Math.max(maxSize, queue.size());
+        }
+        return maxSize;
+    }
+
+    /**
+     * It registers an action which is run when the clients are resumed, so components which don't poll the state,
+     * like the event loops, can restore their interest in reading
+     * @param listener Action to be run when the clients are resumed. It must not block.
+     */
+    public void addResumeListener(Runnable listener) {
+        resumeListeners.add(listener);
+    }
+
+    /**
+     * Get the total time, in nanoseconds, the clients have been throttled, without the current throttling if any
+     */
+    public long getThrottledNanosTotal() {
+        return throttledNanosTotal.sum();
+    }
+
+    /**
+     * Get the number of times the clients have been throttled
+     */
+    public long getThrottleEventsTotal() {
+        return throttleEventsTotal.sum();
+    }
+
+    /**
+     * Get highWatermark
+     */
+    public int getHighWatermark() {
+        return highWatermark;
+    }
+
+    /**
+     * Get lowWatermark
+     */
+    public int getLowWatermark() {
+        return lowWatermark;
+    }
+}
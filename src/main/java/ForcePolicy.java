@@ -0,0 +1,15 @@
+/**
+ * Policies which decide when the written numbers are forced to the storage device
+ */
+public enum ForcePolicy {
+
+    /**
+     * The operating system decides when the numbers reach the storage device
+     */
+    NEVER,
+
+    /**
+     * Every commit waits until its numbers have reached the storage device
+     */
+    COMMIT
+}
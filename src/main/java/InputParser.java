@@ -0,0 +1,10 @@
+public interface InputParser {
+
+    /**
+     * It processes the next byte received from a client
+     * @param b Byte received from the client
+     * @return The number, from 0 to 999999999, when a valid number has been completed. Otherwise one of the constants
+     * of LineParser: INCOMPLETE, INVALID, TERMINATE, BINARY or ACKS.
+     */
+    int feed(byte b);
+}
@@ -0,0 +1,224 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+public class IntRingBuffer {
+
+    // The counters are stored in the same array, but far enough from each other and from the array header to be on
+    // different cache lines, so producers claiming slots don't invalidate the line read by the consumer.
+    private static final int PADDING = 16;
+    private static final int TAIL_INDEX = PADDING;
+    private static final int HEAD_INDEX = 2 * PADDING;
+    private static final long PRODUCER_BACKOFF_NANOS = 50_000;
+
+    private final int[] buffer;
+    private final AtomicLongArray sequences;
+    private final AtomicLongArray counters;
+    private final int capacity;
+    private final int mask;
+    private volatile Thread consumer;
+    private volatile boolean consumerWaiting;
+    private volatile boolean closed;
+
+    /**
+     * Constructor to create a bounded, lock-free queue of primitive ints which can be written by many producers and
+     * read by a single consumer. Every slot is allocated up front, so no object is created per number.
+     * @param requestedCapacity Minimum number of ints the buffer can hold. It is rounded up to a power of two.
+     */
+    public IntRingBuffer(int requestedCapacity) {
+        if (requestedCapacity <= 0 || requestedCapacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + requestedCapacity);
+        }
+        capacity = requestedCapacity == 1 ? 1 : Integer.highestOneBit(requestedCapacity - 1) << 1;
+        mask = capacity - 1;
+        buffer = new int[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.lazySet(i, i);
+        }
+        counters = new AtomicLongArray(3 * PADDING);
+    }
+
+    /**
+     * It adds a number to the buffer without blocking. A slot is claimed with a CAS on the tail and published through
+     * its sequence, so the consumer never reads a slot which is still being written.
+     * @param value Number to be added
+     * @return True if the number was added, false if the buffer is full
+     */
+    public boolean offer(int value) {
+        return tryPut(value) >= 0;
+    }
+
+    /**
+     * It adds a number to the buffer without blocking, like offer
+     * @param value Number to be added
+     * @return Sequence of the number, which is the number of ints added to the buffer before it, or -1 if the buffer
+     * is full
+     */
+    private long tryPut(int value) {
+        long tail = counters.get(TAIL_INDEX);
+        while (true) {
+            int index = (int) (tail & mask);
+            long sequence = sequences.get(index);
+            if (sequence == tail) {
+                if (counters.compareAndSet(TAIL_INDEX, tail, tail + 1)) {
+                    buffer[index] = value;
+                    sequences.lazySet(index, tail + 1);
+                    if (consumerWaiting) {
+                        signalConsumer();
+                    }
+                    return tail;
+                }
+            } else if (sequence < tail) {
+                return -1;
+            }
+            tail = counters.get(TAIL_INDEX);
+        }
+    }
+
+    /**
+     * It adds a number to the buffer, waiting for the consumer to free a slot if the buffer is full
+     * @param value Number to be added
+     * @return Sequence of the number, which is the number of ints added to the buffer before it
+     * @throws InterruptedException If the thread is interrupted while waiting
+     * @throws IllegalStateException If the buffer has been closed, since the consumer may already have stopped
+     */
+    public long put(int value) throws InterruptedException {
+        if (closed) {
+            throw new IllegalStateException("The buffer has been closed");
+        }
+        long sequence;
+        while ((sequence = tryPut(value)) < 0) {
+            LockSupport.parkNanos(this, PRODUCER_BACKOFF_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (closed) {
+                throw new IllegalStateException("The buffer has been closed");
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * It moves every published number, up to the size of the batch, from the buffer to the batch. It must only be
+     * called by the consumer thread.
+     * @param batch Array where the numbers are copied
+     * @return Number of ints copied into the batch
+     */
+    public int drainTo(int[] batch) {
+        long head = counters.get(HEAD_INDEX);
+        int count = 0;
+        while (count < batch.length) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            batch[count++] = buffer[index];
+            sequences.lazySet(index, head + capacity);
+            head++;
+        }
+        counters.lazySet(HEAD_INDEX, head);
+        return count;
+    }
+
+    /**
+     * It parks the consumer thread until at least one number has been added to the buffer, or the buffer is closed.
+     * The consumer announces that it is waiting before checking the tail again, so a producer which claims a slot
+     * afterwards always wakes it up.
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public void awaitNotEmpty() throws InterruptedException {
+        consumer = Thread.currentThread();
+        long head = counters.get(HEAD_INDEX);
+        while (counters.get(TAIL_INDEX) == head && !closed) {
+            consumerWaiting = true;
+            if (counters.get(TAIL_INDEX) == head && !closed) {
+                LockSupport.park(this);
+            }
+            consumerWaiting = false;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * It parks the consumer thread until at least one number has been added to the buffer, the buffer is closed or the
+     * timeout expires
+     * @param timeoutNanos Maximum time to wait, in nanoseconds
+     * @return True if there are numbers in the buffer, false if the timeout expired or the buffer is closed and empty
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public boolean awaitNotEmpty(long timeoutNanos) throws InterruptedException {
+        consumer = Thread.currentThread();
+        long head = counters.get(HEAD_INDEX);
+        long deadline = System.nanoTime() + timeoutNanos;
+        while (counters.get(TAIL_INDEX) == head && !closed) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                return false;
+            }
+            consumerWaiting = true;
+            if (counters.get(TAIL_INDEX) == head && !closed) {
+                LockSupport.parkNanos(this, remainingNanos);
+            }
+            consumerWaiting = false;
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return counters.get(TAIL_INDEX) != head;
+    }
+
+    private void signalConsumer() {
+        consumerWaiting = false;
+        LockSupport.unpark(consumer);
+    }
+
+    /**
+     * It tells the consumer that no more numbers are going to be added, so it stops waiting once it has drained the
+     * buffer instead of being interrupted while numbers are still in it. It must only be called once every producer has
+     * stopped, and numbers put afterwards are rejected.
+     */
+    public void close() {
+        closed = true;
+        LockSupport.unpark(consumer);
+    }
+
+    /**
+     * Get closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Get the number of ints added to the buffer since it was created, which is the sequence of the next one
+     */
+    public long getProducedCount() {
+        return counters.get(TAIL_INDEX);
+    }
+
+    /**
+     * Get the approximate number of ints waiting in the buffer
+     */
+    public int size() {
+        long size = counters.get(TAIL_INDEX) - counters.get(HEAD_INDEX);
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    /**
+     * Get the number of ints taken by the consumer since the buffer was created, which is the sequence of the next int
+     * to be taken
+     */
+    public long getConsumedCount() {
+        return counters.get(HEAD_INDEX);
+    }
+
+    /**
+     * Get capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,147 @@
+public class LineParser implements InputParser {
+
+    /**
+     * Returned by feed while the line separator hasn't been received yet
+     */
+    public static final int INCOMPLETE = -1;
+
+    /**
+     * Returned by feed when a line doesn't conform to a valid line of input
+     */
+    public static final int INVALID = -2;
+
+    /**
+     * Returned by feed when a line contains only the 'terminate' keyword
+     */
+    public static final int TERMINATE = -3;
+
+    /**
+     * Returned by feed when the first line of the connection contains only the 'binary' keyword, so the rest of the
+     * bytes must be read by a BinaryFrameParser
+     */
+    public static final int BINARY = -4;
+
+    /**
+     * Returned by feed when the first line of the connection contains only the 'acks' keyword, so the client must be
+     * told which of its numbers have been persisted. The 'binary' keyword may still follow it.
+     */
+    public static final int ACKS = -5;
+
+    private static final int DIGITS_INPUT_SIZE = 9;
+    private static final int MAX_LINE_LENGTH = 64;
+    private static final byte[] TERMINATE_KEYWORD = {'t', 'e', 'r', 'm', 'i', 'n', 'a', 't', 'e'};
+    private static final byte[] BINARY_KEYWORD = {'b', 'i', 'n', 'a', 'r', 'y'};
+    private static final byte[] ACKS_KEYWORD = {'a', 'c', 'k', 's'};
+    private static final boolean CRLF_LINE_SEPARATOR = "\r\n".equals(System.lineSeparator());
+
+    private final byte[] line;
+    private int length;
+    private boolean overflow;
+    private byte previousByte;
+    private boolean firstLine;
+    private boolean acks;
+
+    /**
+     * Constructor to create a parser which keeps the state of the line being received from a single client. It doesn't
+     * allocate anything once created, so it can be fed straight from the bytes read from the socket.
+     */
+    public LineParser() {
+        line = new byte[MAX_LINE_LENGTH];
+        firstLine = true;
+    }
+
+    /**
+     * It processes the next byte received from the client. The same rules as Utils.removeEscapeCharacters are applied:
+     * a backspace removes the previous character, tabs, carriage returns and form feeds are ignored, and the escaped
+     * sequences \', \" and \\ are dropped.
+     * @param b Byte received from the client
+     * @return The number, from 0 to 999999999, when a valid line has been completed. Otherwise INCOMPLETE, INVALID,
+     * TERMINATE, BINARY or ACKS.
+     */
+    @Override
+    public int feed(byte b) {
+        byte previous = previousByte;
+        previousByte = b;
+        switch (b) {
+            case '\n':
+                if (CRLF_LINE_SEPARATOR && previous != '\r') {
+                    return INCOMPLETE;
+                }
+                return completeLine();
+            case '\b':
+                if (length > 0 && !overflow) {
+                    length--;
+                }
+                return INCOMPLETE;
+            case '\t':
+            case '\r':
+            case '\f':
+                return INCOMPLETE;
+            case '\'':
+            case '"':
+            case '\\':
+                if (length > 0 && !overflow && line[length - 1] == '\\') {
+                    length--;
+                    return INCOMPLETE;
+                }
+                break;
+            default:
+                break;
+        }
+        if (length == MAX_LINE_LENGTH) {
+            overflow = true;
+        } else {
+            line[length++] = b;
+        }
+        return INCOMPLETE;
+    }
+
+    /**
+     * It checks the line which has just been completed and resets the state for the next one. A line after the 'acks'
+     * keyword still counts as the first line, so it can be the 'binary' keyword, but not the 'acks' keyword again.
+     * @return The number, INVALID, TERMINATE, BINARY or ACKS
+     */
+    private int completeLine() {
+        int result = overflow ? INVALID : evaluate();
+        length = 0;
+        overflow = false;
+        firstLine = result == ACKS;
+        acks |= firstLine;
+        return result;
+    }
+
+    /**
+     * It checks that the line is composed of exactly nine decimal digits, and parses them, or that it is the
+     * 'terminate' keyword, or the 'binary' or 'acks' keyword if it is the first line
+     * @return The number, INVALID, TERMINATE, BINARY or ACKS
+     */
+    private int evaluate() {
+        if (length != DIGITS_INPUT_SIZE) {
+            if (firstLine && isKeyword(BINARY_KEYWORD)) {
+                return BINARY;
+            }
+            return firstLine && !acks && isKeyword(ACKS_KEYWORD) ? ACKS : INVALID;
+        }
+        int number = 0;
+        for (int i = 0; i < DIGITS_INPUT_SIZE; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return isKeyword(TERMINATE_KEYWORD) ? TERMINATE : INVALID;
+            }
+            number = number * 10 + digit;
+        }
+        return number;
+    }
+
+    private boolean isKeyword(byte[] keyword) {
+        if (length != keyword.length) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length; i++) {
+            if (line[i] != keyword[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,147 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class ListenerGroup implements Closeable {
+
+    private final List<ServerSocket> sockets;
+    private final List<ServerSocketChannel> channels;
+
+    private ListenerGroup(List<ServerSocket> sockets, List<ServerSocketChannel> channels) {
+        this.sockets = sockets;
+        this.channels = channels;
+    }
+
+    /**
+     * It binds blocking server sockets, to be used by the thread per client and virtual thread modes
+     * @param ports Ports where the clients connect
+     * @param acceptorsPerPort Number of sockets bound to each port. More than one needs SO_REUSEPORT, so the kernel
+     *                         spreads the incoming connections between them.
+     * @return Group with every socket bound
+     * @throws IOException If any of the sockets can't be bound, in which case the others are closed
+     */
+    public static ListenerGroup bindSockets(List<Integer> ports, int acceptorsPerPort) throws IOException {
+        ListenerGroup group = new ListenerGroup(new ArrayList<>(), Collections.emptyList());
+        boolean reusePort;
+        try (ServerSocket probe = new ServerSocket()) {
+            reusePort = isReusePortNeeded(acceptorsPerPort,
+                    probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT));
+        }
+        try {
+            for (int port : ports) {
+                for (int i = 0; i < (reusePort ? acceptorsPerPort : 1); i++) {
+                    ServerSocket socket = new ServerSocket();
+                    group.sockets.add(socket);
+                    if (reusePort) {
+                        socket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                    }
+                    socket.bind(new InetSocketAddress(port));
+                }
+            }
+        } catch (IOException e) {
+            group.close();
+            throw e;
+        }
+        return group;
+    }
+
+    /**
+     * It binds server channels, to be used by the selector mode. They are left in blocking mode.
+     * @param ports Ports where the clients connect
+     * @param acceptorsPerPort Number of channels bound to each port. More than one needs SO_REUSEPORT, so the kernel
+     *                         spreads the incoming connections between them.
+     * @return Group with every channel bound
+     * @throws IOException If any of the channels can't be bound, in which case the others are closed
+     */
+    public static ListenerGroup bindChannels(List<Integer> ports, int acceptorsPerPort) throws IOException {
+        ListenerGroup group = new ListenerGroup(new ArrayList<>(), new ArrayList<>());
+        boolean reusePort;
+        try (ServerSocketChannel probe = ServerSocketChannel.open()) {
+            reusePort = isReusePortNeeded(acceptorsPerPort,
+                    probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT));
+        }
+        try {
+            for (int port : ports) {
+                for (int i = 0; i < (reusePort ? acceptorsPerPort : 1); i++) {
+                    ServerSocketChannel channel = ServerSocketChannel.open();
+                    group.channels.add(channel);
+                    group.sockets.add(channel.socket());
+                    if (reusePort) {
+                        channel.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                    }
+                    channel.bind(new InetSocketAddress(port));
+                }
+            }
+        } catch (IOException e) {
+            group.close();
+            throw e;
+        }
+        return group;
+    }
+
+    /**
+     * It checks whether several sockets must share each port. When SO_REUSEPORT is not supported, as on Windows, a
+     * single socket is bound to each port instead of failing.
+     * @param acceptorsPerPort Number of sockets requested for each port
+     * @param supported True if the platform supports SO_REUSEPORT
+     * @return True if SO_REUSEPORT must be set
+     */
+    private static boolean isReusePortNeeded(int acceptorsPerPort, boolean supported) {
+        if (acceptorsPerPort < 1) {
+            throw new IllegalArgumentException("There must be at least one acceptor per port");
+        }
+        if (acceptorsPerPort > 1 && !supported) {
+            System.out.println("SO_REUSEPORT is not supported, so a single acceptor is used for each port");
+            return false;
+        }
+        return acceptorsPerPort > 1;
+    }
+
+    /**
+     * It checks whether the group has been closed, which is how the acceptors know that the server is shutting down
+     * @return True if every socket is closed
+     */
+    public boolean isClosed() {
+        for (ServerSocket socket : sockets) {
+            if (!socket.isClosed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * It closes every socket of the group, so every acceptor stops accepting clients. It can be called more than once
+     * and from any thread.
+     */
+    @Override
+    public void close() {
+        for (ServerSocket socket : sockets) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                System.out.println("Error while closing a server socket: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Get sockets
+     */
+    public List<ServerSocket> getSockets() {
+        return sockets;
+    }
+
+    /**
+     * Get channels
+     */
+    public List<ServerSocketChannel> getChannels() {
+        return channels;
+    }
+}
@@ -0,0 +1,270 @@
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LoadGenerator {
+
+    private static final int MAX_NUMBERS = 1_000_000_000;
+    private static final int DIGITS_INPUT_SIZE = 9;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final int POLL_MILLIS = 250;
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] INVALID_LINE = ("invalid" + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TERMINATE_LINE = ("terminate" + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BINARY_LINE = ("binary" + System.lineSeparator()).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] INVALID_FRAME = ByteBuffer.allocate(2 * Integer.BYTES).putInt(1).putInt(MAX_NUMBERS).array();
+    private static final int FRAME_NUMBERS = 1024;
+    private static final String SEGMENT_FILE_SUFFIX = ".part";
+
+    private final LoadGeneratorOptions options;
+    private final AtomicInteger connectionsOpened;
+    private final AtomicInteger connectionsRejected;
+    private final LongAdder numbersSent;
+    private final LongAdder uniqueNumbersSent;
+    private final LongAdder invalidLinesSent;
+
+    /**
+     * Constructor to create a tool which loads a running server through many connections and measures how fast the
+     * numbers sent are persisted, by reading the log file written by the server. It must run on the same host as the
+     * server, which must start with an empty log file.
+     * @param options Options which set the connections, the numbers they send and when 'terminate' is sent
+     */
+    public LoadGenerator(LoadGeneratorOptions options) {
+        if ((long) options.getConnections() * options.getNumbersPerConnection() > MAX_NUMBERS) {
+            throw new IllegalArgumentException("Connections and numbers per connection can't send more than "
+                    + MAX_NUMBERS + " different numbers");
+        }
+        this.options = options;
+        connectionsOpened = new AtomicInteger();
+        connectionsRejected = new AtomicInteger();
+        numbersSent = new LongAdder();
+        uniqueNumbersSent = new LongAdder();
+        invalidLinesSent = new LongAdder();
+    }
+
+    /**
+     * It runs every connection at the same time, waits until the log file stops growing or contains every unique
+     * number sent, and sends 'terminate' when the options say so. Connections above the maximum number of clients of
+     * the server wait until another client leaves, as real clients would.
+     * @return Results of the run
+     * @throws InterruptedException If the thread is interrupted while waiting for the connections
+     */
+    public LoadReport run() throws InterruptedException {
+        ExecutorService senders = Executors.newFixedThreadPool(options.getConnections());
+        ScheduledExecutorService terminator = Executors.newSingleThreadScheduledExecutor();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < options.getConnections(); i++) {
+            int connection = i;
+            senders.execute(() -> send(connection));
+        }
+        senders.shutdown();
+        if (options.isSendTerminate() && options.getTerminateAfterMillis() >= 0) {
+            terminator.schedule(this::sendTerminate, options.getTerminateAfterMillis(), TimeUnit.MILLISECONDS);
+        }
+        terminator.shutdown();
+
+        long sendNanos = 0;
+        long persistedNumbers = 0;
+        long lastGrowthNanos = startNanos;
+        while (true) {
+            long now = System.nanoTime();
+            if (sendNanos == 0 && senders.isTerminated()) {
+                sendNanos = now - startNanos;
+            }
+            long count = countPersistedNumbers();
+            if (count != persistedNumbers) {
+                persistedNumbers = count;
+                lastGrowthNanos = now;
+            }
+            if (sendNanos > 0 && (persistedNumbers >= uniqueNumbersSent.sum()
+                    || now - lastGrowthNanos >= TimeUnit.MILLISECONDS.toNanos(options.getSettleMillis()))) {
+                break;
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+        terminator.awaitTermination(options.getTerminateAfterMillis() + options.getSettleMillis(), TimeUnit.MILLISECONDS);
+        if (options.isSendTerminate() && options.getTerminateAfterMillis() < 0) {
+            sendTerminate();
+        }
+        return new LoadReport(connectionsOpened.get(), connectionsRejected.get(), numbersSent.sum(),
+                uniqueNumbersSent.sum(), invalidLinesSent.sum(), sendNanos, persistedNumbers, lastGrowthNanos - startNanos);
+    }
+
+    /**
+     * It sends every number of a connection. Each connection sends its own range of numbers, so the numbers of
+     * different connections never collide, and duplicates repeat numbers the connection has already sent. After an
+     * invalid line the server disconnects the client, so a new connection is opened to send the rest of the numbers. In
+     * binary mode, the numbers are sent in frames of up to 1024 numbers, and an invalid line is a frame with a number
+     * out of range.
+     * @param connection Index of the connection
+     */
+    private void send(int connection) {
+        Random random = new Random(options.getSeed() + connection);
+        int firstNumber = connection * options.getNumbersPerConnection();
+        byte[] line = new byte[DIGITS_INPUT_SIZE + LINE_SEPARATOR.length];
+        System.arraycopy(LINE_SEPARATOR, 0, line, DIGITS_INPUT_SIZE, LINE_SEPARATOR.length);
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES * (FRAME_NUMBERS + 1));
+        int linesSent = 0;
+        int freshNumbers = 0;
+        while (linesSent < options.getNumbersPerConnection()) {
+            long numbers = 0;
+            try (Socket socket = new Socket(options.getHost(), options.getPort());
+                 OutputStream output = new BufferedOutputStream(socket.getOutputStream(), WRITE_BUFFER_SIZE)) {
+                connectionsOpened.incrementAndGet();
+                if (options.isBinary()) {
+                    output.write(BINARY_LINE);
+                }
+                frame.clear().position(Integer.BYTES);
+                while (linesSent < options.getNumbersPerConnection()) {
+                    linesSent++;
+                    if (random.nextDouble() < options.getInvalidLineRate()) {
+                        if (options.isBinary()) {
+                            writeFrame(output, frame);
+                            output.write(INVALID_FRAME);
+                        } else {
+                            output.write(INVALID_LINE);
+                        }
+                        invalidLinesSent.increment();
+                        break;
+                    }
+                    int number;
+                    if (freshNumbers > 0 && random.nextDouble() < options.getDuplicateRatio()) {
+                        number = firstNumber + random.nextInt(freshNumbers);
+                    } else {
+                        number = firstNumber + freshNumbers++;
+                        uniqueNumbersSent.increment();
+                    }
+                    numbers++;
+                    if (options.isBinary()) {
+                        frame.putInt(number);
+                        if (!frame.hasRemaining()) {
+                            writeFrame(output, frame);
+                        }
+                        continue;
+                    }
+                    for (int i = DIGITS_INPUT_SIZE - 1; i >= 0; i--) {
+                        line[i] = (byte) ('0' + number % 10);
+                        number /= 10;
+                    }
+                    output.write(line);
+                }
+                writeFrame(output, frame);
+            } catch (IOException e) {
+                System.out.println("Connection " + connection + " has been rejected: " + e.getMessage());
+                connectionsRejected.incrementAndGet();
+                return;
+            } finally {
+                numbersSent.add(numbers);
+            }
+        }
+    }
+
+    /**
+     * It writes the numbers held by a frame, if any, preceded by their count, and clears the frame
+     * @param output Stream of the connection
+     * @param frame Frame whose first int is reserved for the count
+     */
+    private void writeFrame(OutputStream output, ByteBuffer frame) throws IOException {
+        int count = frame.position() / Integer.BYTES - 1;
+        if (count > 0) {
+            frame.putInt(0, count);
+            output.write(frame.array(), 0, frame.position());
+        }
+        frame.clear().position(Integer.BYTES);
+    }
+
+    /**
+     * It sends the 'terminate' keyword through a new connection
+     */
+    private void sendTerminate() {
+        try (Socket socket = new Socket(options.getHost(), options.getPort())) {
+            socket.getOutputStream().write(TERMINATE_LINE);
+            System.out.println("'terminate' has been sent");
+        } catch (IOException e) {
+            System.out.println("'terminate' couldn't be sent: " + e.getMessage());
+        }
+    }
+
+    /**
+     * It counts the lines of the log file, and of the segments written by the partitions of the server while it runs.
+     * Memory-mapped files may end with zeros, which aren't counted.
+     * @return Number of numbers persisted by the server
+     */
+    private long countPersistedNumbers() {
+        Path logFile = Paths.get(options.getLogFile()).toAbsolutePath();
+        long lines = countLines(logFile);
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(logFile.getParent(),
+                logFile.getFileName() + SEGMENT_FILE_SUFFIX + "*")) {
+            for (Path segment : segments) {
+                lines += countLines(segment);
+            }
+        } catch (IOException e) {
+            System.out.println("Error while listing the segments of '" + options.getLogFile() + "': " + e.getMessage());
+        }
+        return lines;
+    }
+
+    /**
+     * It counts the lines of a file
+     * @param file File written by the server
+     * @return Number of lines, or 0 if the file doesn't exist
+     */
+    private long countLines(Path file) {
+        long lines = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    if (buffer.get() == '\n') {
+                        lines++;
+                    }
+                }
+                buffer.clear();
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException e) {
+            System.out.println("Error while reading '" + file + "': " + e.getMessage());
+        }
+        return lines;
+    }
+
+    /**
+     * It runs the load generator against a server on this host. The port and the number of connections can be given
+     * as arguments, and the rest of the options as system properties (-Dload.xxx=value).
+     * @param args Nothing, or the port and the number of connections
+     */
+    public static void main(String[] args) throws InterruptedException {
+        LoadGeneratorOptions options = LoadGeneratorOptions.fromSystemProperties();
+        if (args.length == NumberUtils.INTEGER_TWO) {
+            if (!NumberUtils.isDigits(args[0]) || !NumberUtils.isDigits(args[1])) {
+                throw new RuntimeException("One or both arguments are not a number");
+            }
+            options.setPort(Integer.parseInt(args[0]));
+            options.setConnections(Integer.parseInt(args[1]));
+        } else if (args.length != NumberUtils.INTEGER_ZERO) {
+            throw new RuntimeException("Only zero and two arguments are allowed");
+        }
+        System.out.println(new LoadGenerator(options).run());
+    }
+}
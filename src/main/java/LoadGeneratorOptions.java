@@ -0,0 +1,279 @@
+import org.apache.commons.lang3.math.NumberUtils;
+
+public class LoadGeneratorOptions {
+
+    private static final String HOST_PROPERTY = "load.host";
+    private static final String NUMBERS_PER_CONNECTION_PROPERTY = "load.numbersPerConnection";
+    private static final String DUPLICATE_RATIO_PROPERTY = "load.duplicateRatio";
+    private static final String INVALID_LINE_RATE_PROPERTY = "load.invalidLineRate";
+    private static final String TERMINATE_AFTER_MILLIS_PROPERTY = "load.terminateAfterMillis";
+    private static final String SEND_TERMINATE_PROPERTY = "load.sendTerminate";
+    private static final String LOG_FILE_PROPERTY = "load.logFile";
+    private static final String SETTLE_MILLIS_PROPERTY = "load.settleMillis";
+    private static final String SEED_PROPERTY = "load.seed";
+    private static final String BINARY_PROPERTY = "load.binary";
+
+    private static final String DEFAULT_HOST = "localhost";
+    private static final int DEFAULT_PORT = 4000;
+    private static final int DEFAULT_CONNECTIONS = 5;
+    private static final int DEFAULT_NUMBERS_PER_CONNECTION = 1_000_000;
+    private static final String DEFAULT_LOG_FILE = "numbers.log";
+    private static final int DEFAULT_SETTLE_MILLIS = 2000;
+    private static final int DEFAULT_SEED = 42;
+
+    private String host;
+    private int port;
+    private int connections;
+    private int numbersPerConnection;
+    private double duplicateRatio;
+    private double invalidLineRate;
+    private int terminateAfterMillis;
+    private boolean sendTerminate;
+    private String logFile;
+    private int settleMillis;
+    private long seed;
+    private boolean binary;
+
+    /**
+     * Constructor which sets every option to its default value. By default, 5 connections send 1M numbers each without
+     * duplicates nor invalid lines, and 'terminate' is sent once every number has been persisted.
+     */
+    public LoadGeneratorOptions() {
+        host = DEFAULT_HOST;
+        port = DEFAULT_PORT;
+        connections = DEFAULT_CONNECTIONS;
+        numbersPerConnection = DEFAULT_NUMBERS_PER_CONNECTION;
+        duplicateRatio = 0;
+        invalidLineRate = 0;
+        terminateAfterMillis = -1;
+        sendTerminate = true;
+        logFile = DEFAULT_LOG_FILE;
+        settleMillis = DEFAULT_SETTLE_MILLIS;
+        seed = DEFAULT_SEED;
+        binary = false;
+    }
+
+    /**
+     * It creates the options from the system properties given when running the program (-Dload.xxx=value). Any
+     * property which is not specified keeps its default value.
+     * @return Options to be used by the load generator
+     */
+    public static LoadGeneratorOptions fromSystemProperties() {
+        LoadGeneratorOptions options = new LoadGeneratorOptions();
+        options.setHost(System.getProperty(HOST_PROPERTY, options.getHost()));
+        options.setNumbersPerConnection(intProperty(NUMBERS_PER_CONNECTION_PROPERTY, options.getNumbersPerConnection()));
+        options.setDuplicateRatio(ratioProperty(DUPLICATE_RATIO_PROPERTY, options.getDuplicateRatio()));
+        options.setInvalidLineRate(ratioProperty(INVALID_LINE_RATE_PROPERTY, options.getInvalidLineRate()));
+        options.setTerminateAfterMillis(intProperty(TERMINATE_AFTER_MILLIS_PROPERTY, options.getTerminateAfterMillis()));
+        options.setSendTerminate(Boolean.parseBoolean(System.getProperty(SEND_TERMINATE_PROPERTY,
+                String.valueOf(options.isSendTerminate()))));
+        options.setLogFile(System.getProperty(LOG_FILE_PROPERTY, options.getLogFile()));
+        options.setSettleMillis(intProperty(SETTLE_MILLIS_PROPERTY, options.getSettleMillis()));
+        options.setSeed(intProperty(SEED_PROPERTY, (int) options.getSeed()));
+        options.setBinary(Boolean.parseBoolean(System.getProperty(BINARY_PROPERTY, String.valueOf(options.isBinary()))));
+        return options;
+    }
+
+    /**
+     * It reads a numeric system property, which can be -1
+     * @param name Name of the property
+     * @param defaultValue Value returned when the property is not specified
+     * @return Value of the property
+     */
+    private static int intProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!NumberUtils.isParsable(value) || value.contains(".")) {
+            throw new RuntimeException("Property '" + name + "' is not a number");
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * It reads a system property whose value must be a ratio from 0 to 1
+     * @param name Name of the property
+     * @param defaultValue Value returned when the property is not specified
+     * @return Value of the property
+     */
+    private static double ratioProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        double ratio = NumberUtils.toDouble(value, -1);
+        if (ratio < 0 || ratio > 1) {
+            throw new RuntimeException("Property '" + name + "' must be a number from 0 to 1");
+        }
+        return ratio;
+    }
+
+    /**
+     * Get host
+     */
+    public String getHost() {
+        return host;
+    }
+
+    /**
+     * Set host
+     */
+    public void setHost(String host) {
+        this.host = host;
+    }
+
+    /**
+     * Get port
+     */
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * Set port
+     */
+    public void setPort(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Get connections
+     */
+    public int getConnections() {
+        return connections;
+    }
+
+    /**
+     * Set connections
+     */
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * Get numbersPerConnection
+     */
+    public int getNumbersPerConnection() {
+        return numbersPerConnection;
+    }
+
+    /**
+     * Set numbersPerConnection
+     */
+    public void setNumbersPerConnection(int numbersPerConnection) {
+        this.numbersPerConnection = numbersPerConnection;
+    }
+
+    /**
+     * Get duplicateRatio
+     */
+    public double getDuplicateRatio() {
+        return duplicateRatio;
+    }
+
+    /**
+     * Set duplicateRatio
+     */
+    public void setDuplicateRatio(double duplicateRatio) {
+        this.duplicateRatio = duplicateRatio;
+    }
+
+    /**
+     * Get invalidLineRate
+     */
+    public double getInvalidLineRate() {
+        return invalidLineRate;
+    }
+
+    /**
+     * Set invalidLineRate
+     */
+    public void setInvalidLineRate(double invalidLineRate) {
+        this.invalidLineRate = invalidLineRate;
+    }
+
+    /**
+     * Get terminateAfterMillis
+     */
+    public int getTerminateAfterMillis() {
+        return terminateAfterMillis;
+    }
+
+    /**
+     * Set terminateAfterMillis
+     */
+    public void setTerminateAfterMillis(int terminateAfterMillis) {
+        this.terminateAfterMillis = terminateAfterMillis;
+    }
+
+    /**
+     * Get sendTerminate
+     */
+    public boolean isSendTerminate() {
+        return sendTerminate;
+    }
+
+    /**
+     * Set sendTerminate
+     */
+    public void setSendTerminate(boolean sendTerminate) {
+        this.sendTerminate = sendTerminate;
+    }
+
+    /**
+     * Get logFile
+     */
+    public String getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * Set logFile
+     */
+    public void setLogFile(String logFile) {
+        this.logFile = logFile;
+    }
+
+    /**
+     * Get settleMillis
+     */
+    public int getSettleMillis() {
+        return settleMillis;
+    }
+
+    /**
+     * Set settleMillis
+     */
+    public void setSettleMillis(int settleMillis) {
+        this.settleMillis = settleMillis;
+    }
+
+    /**
+     * Get seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Set seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Get binary
+     */
+    public boolean isBinary() {
+        return binary;
+    }
+
+    /**
+     * Set binary
+     */
+    public void setBinary(boolean binary) {
+        this.binary = binary;
+    }
+}
@@ -0,0 +1,106 @@
+import java.util.concurrent.TimeUnit;
+
+public class LoadReport {
+
+    private final int connectionsOpened;
+    private final int connectionsRejected;
+    private final long numbersSent;
+    private final long uniqueNumbersSent;
+    private final long invalidLinesSent;
+    private final long sendNanos;
+    private final long persistedNumbers;
+    private final long persistNanos;
+
+    /**
+     * Constructor to create the results of a run of the load generator
+     * @param connectionsOpened Connections opened, including those opened again after sending an invalid line
+     * @param connectionsRejected Connections refused by the server, or closed by it before they sent every number
+     * @param numbersSent Valid numbers sent, unique or duplicated
+     * @param uniqueNumbersSent Numbers sent for the first time in the run
+     * @param invalidLinesSent Invalid lines sent
+     * @param sendNanos Time taken by the clients to send every line
+     * @param persistedNumbers Numbers found in the log file at the end of the run
+     * @param persistNanos Time from the start of the run until the last number was found in the log file
+     */
+    public LoadReport(int connectionsOpened, int connectionsRejected, long numbersSent, long uniqueNumbersSent,
+                      long invalidLinesSent, long sendNanos, long persistedNumbers, long persistNanos) {
+        this.connectionsOpened = connectionsOpened;
+        this.connectionsRejected = connectionsRejected;
+        this.numbersSent = numbersSent;
+        this.uniqueNumbersSent = uniqueNumbersSent;
+        this.invalidLinesSent = invalidLinesSent;
+        this.sendNanos = sendNanos;
+        this.persistedNumbers = persistedNumbers;
+        this.persistNanos = persistNanos;
+    }
+
+    /**
+     * Get the numbers sent per second by the clients, which is how fast they filled their socket buffers
+     */
+    public double getSendThroughput() {
+        return perSecond(numbersSent, sendNanos);
+    }
+
+    /**
+     * Get the unique numbers persisted per second by the server, which is the throughput confirmed by the log file
+     */
+    public double getPersistedThroughput() {
+        return perSecond(persistedNumbers, persistNanos);
+    }
+
+    private static double perSecond(long count, long nanos) {
+        return nanos <= 0 ? 0 : count * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    /**
+     * Get connectionsOpened
+     */
+    public int getConnectionsOpened() {
+        return connectionsOpened;
+    }
+
+    /**
+     * Get connectionsRejected
+     */
+    public int getConnectionsRejected() {
+        return connectionsRejected;
+    }
+
+    /**
+     * Get numbersSent
+     */
+    public long getNumbersSent() {
+        return numbersSent;
+    }
+
+    /**
+     * Get uniqueNumbersSent
+     */
+    public long getUniqueNumbersSent() {
+        return uniqueNumbersSent;
+    }
+
+    /**
+     * Get invalidLinesSent
+     */
+    public long getInvalidLinesSent() {
+        return invalidLinesSent;
+    }
+
+    /**
+     * Get persistedNumbers
+     */
+    public long getPersistedNumbers() {
+        return persistedNumbers;
+    }
+
+    @Override
+    public String toString() {
+        return "Connections opened: " + connectionsOpened + ", rejected: " + connectionsRejected + System.lineSeparator()
+                + "Sent " + numbersSent + " numbers (" + uniqueNumbersSent + " unique) and " + invalidLinesSent
+                + " invalid lines in " + TimeUnit.NANOSECONDS.toMillis(sendNanos) + " ms: "
+                + String.format("%.0f", getSendThroughput()) + " numbers/s" + System.lineSeparator()
+                + "Persisted " + persistedNumbers + " unique numbers in " + TimeUnit.NANOSECONDS.toMillis(persistNanos)
+                + " ms: " + String.format("%.0f", getPersistedThroughput()) + " numbers/s";
+    }
+}
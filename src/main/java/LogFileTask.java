@@ -1,117 +1,697 @@
-import java.io.BufferedWriter;
+import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.BitSet;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.locks.LockSupport;
 
 public class LogFileTask {
 
-    private static final String LOGS_FILE_NAME = "numbers.log";
     private static final Integer MAX_NUM_UNIQUE_INPUTS = 1_000_000_000;
     private static final Integer TEN_SECONDS = 10;
-    private static final int SHUTDOWN_TIMEOUT = 20;
-    private final Lock lock;
-    private final BlockingQueue<String> clientInputsQueue;
-    private final BitSet receivedNumbers;
-    private Integer uniqueNumbers;
-    private Integer uniqueNumbersTotal;
-    private Integer duplicatedNumbers;
+    private static final int DRAIN_BATCH_SIZE = 4096;
+    private static final int DUMP_BATCH_SIZE = 1 << 16;
+    private static final String DUMP_FILE_SUFFIX = ".tmp";
+    private static final String SEGMENT_FILE_SUFFIX = ".part";
+    // The counters of the numbers being queued are striped, and each stripe is on its own cache line, so clients
+    // queueing different numbers don't contend on them
+    private static final int ENQUEUING_STRIPES = 1024;
+    private static final int STRIPE_PADDING = 16;
+    private static final long ENQUEUED_BACKOFF_NANOS = 50_000;
+    private final ServerOptions options;
+    private final String logFileName;
+    private final DedupSet receivedNumbers;
+    private final FlowControl flowControl;
+    private final ServerMetrics metrics;
+    private final boolean dumpOutput;
+    private final Cluster cluster;
+    private final WriterPartition[] partitions;
+    private final AckSender ackSender;
+    private final AtomicIntegerArray enqueuingNumbers;
+    private final int partitionRangeStart;
+    private final long partitionRangeSize;
+    private volatile long reportedUniqueNumbers;
+    private volatile long reportedDuplicatedNumbers;
+    private volatile long reportedInvalidLines;
+    private long reportedThrottledNanos;
     private ScheduledThreadPoolExecutor threadPool;
+    private volatile boolean logFileComplete;
+    private volatile boolean numbersDropped;
+    private volatile long startedDumps;
+    private volatile long persistedDumps;
 
     /**
      * Constructor to create an object which is responsible for handling the logic related to the saving of logs.
      * It also starts a timer that logs stats related to the information that must be saved.
-     * @param clientInputsQueue BlockingQueue which contains the information to be saved in the log file
+     * @param clientInputsQueue Ring buffer which contains the information to be saved in the log file. With several
+     *                          writer partitions, it is the buffer of the first one, and the others get their own
+     *                          buffers of the same capacity.
+     * @param options Options which select the deduplication structure, how the log file is written, the writer backend
+     *                and its group commit settings, the number of writer partitions, the watermarks at which the
+     *                clients are throttled, and the nodes of the cluster, if any
      */
-    public LogFileTask(BlockingQueue<String> clientInputsQueue) {
-        deleteFileIfExists();
-        this.clientInputsQueue = clientInputsQueue;
-        receivedNumbers = new BitSet(MAX_NUM_UNIQUE_INPUTS);
-        lock = new ReentrantLock();
-        uniqueNumbers = 0;
-        uniqueNumbersTotal = 0;
-        duplicatedNumbers = 0;
-        threadPool = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(2);
+    public LogFileTask(IntRingBuffer clientInputsQueue, ServerOptions options) {
+        this.options = options;
+        logFileName = options.getLogFile();
+        dumpOutput = options.getOutputMode() == OutputMode.DUMP;
+        int partitionCount = dumpOutput ? 1 : options.getWriterPartitions();
+        if (partitionCount < 1) {
+            throw new IllegalArgumentException("There must be at least one writer partition");
+        }
+        receivedNumbers = openDedupSet();
+        cluster = options.getClusterNodes().isEmpty() ? null : new Cluster(options);
+        partitionRangeStart = cluster == null ? 0 : cluster.getRangeStart();
+        partitionRangeSize = (cluster == null ? MAX_NUM_UNIQUE_INPUTS : cluster.getRangeEnd()) - (long) partitionRangeStart;
+        List<IntRingBuffer> queues = new ArrayList<>();
+        queues.add(clientInputsQueue);
+        for (int i = 1; i < partitionCount; i++) {
+            queues.add(new IntRingBuffer(clientInputsQueue.getCapacity()));
+        }
+        flowControl = new FlowControl(queues, options.getQueueHighWatermark(), options.getQueueLowWatermark());
+        metrics = new ServerMetrics(queues, flowControl,
+                clientInputsQueue.getCapacity() + options.getWriterBatchSize() + DRAIN_BATCH_SIZE);
+        partitions = new WriterPartition[partitionCount];
+        ackSender = new AckSender(partitionCount);
+        enqueuingNumbers = new AtomicIntegerArray(ENQUEUING_STRIPES * STRIPE_PADDING);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new WriterPartition(i, partitionStart(i), partitionStart(i + 1), queues.get(i),
+                    partitionCount == 1 ? logFileName : segmentFileName(i), options, flowControl, metrics, ackSender, i == 0);
+        }
+        threadPool = (ScheduledThreadPoolExecutor) Executors.newScheduledThreadPool(partitionCount + 2);
+    }
+
+    /**
+     * It calculates the first number of a writer partition. The numbers of this server are split into consecutive
+     * ranges of the same size, so partition i gets the numbers n for which (n - start) * partitions / size rounds
+     * down to i.
+     * @param index Index of the partition, or the number of partitions to get the end of the last range
+     * @return First number of the range
+     */
+    private int partitionStart(int index) {
+        return (int) (partitionRangeStart + (index * partitionRangeSize + partitions.length - 1) / partitions.length);
+    }
+
+    /**
+     * It returns the name of the segment file written by a partition, next to the log file
+     * @param index Index of the partition
+     * @return Name of the segment file
+     */
+    private String segmentFileName(int index) {
+        return logFileName + SEGMENT_FILE_SUFFIX + index;
+    }
+
+    /**
+     * It creates the structure which remembers the numbers already received. When it is persisted between runs, the log
+     * file is kept and the structure is reused as it is if it was closed cleanly together with the log file. Otherwise
+     * it is rebuilt from the log file, after appending the segments left by partitions which weren't merged. When it
+     * isn't persisted, the log file and any segment are deleted.
+     * @return Structure to deduplicate numbers
+     */
+    private DedupSet openDedupSet() {
+        if (options.getDedupMode() == DedupMode.PAGED) {
+            deleteFileIfExists();
+            return new PagedBitSet(MAX_NUM_UNIQUE_INPUTS);
+        } else if (options.getDedupMode() != DedupMode.MAPPED) {
+            deleteFileIfExists();
+            return new ConcurrentBitSet(MAX_NUM_UNIQUE_INPUTS);
+        }
+        try {
+            mergeSegments();
+            MappedBitSet dedupSet = new MappedBitSet(options.getDedupIndexFile(), MAX_NUM_UNIQUE_INPUTS);
+            if (dedupSet.isConsistentWith(new File(logFileName).length())) {
+                System.out.println("Resuming from '" + options.getDedupIndexFile() + "' and '" + logFileName + "'");
+            } else {
+                System.out.println("'" + options.getDedupIndexFile() + "' doesn't match '" + logFileName + "'. It is going to be rebuilt from it");
+                dedupSet.clear();
+                rebuildDedupSet(dedupSet);
+            }
+            return dedupSet;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error while opening '" + options.getDedupIndexFile() + "'", e);
+        }
+    }
+
+    /**
+     * It sets every number found in the log file, and truncates the file after its last complete line, since a crash
+     * may have left a line partially written or zeros at the end of a memory-mapped region
+     * @param dedupSet Empty structure where the numbers are set
+     */
+    private void rebuildDedupSet(DedupSet dedupSet) throws IOException {
+        File file = new File(logFileName);
+        if (!file.exists()) {
+            return;
+        }
+        long validLength = 0;
+        long position = 0;
+        long numbers = 0;
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            int number = 0;
+            int digits = 0;
+            int b;
+            while ((b = inputStream.read()) != -1) {
+                position++;
+                if (b >= '0' && b <= '9' && digits < 9) {
+                    number = number * 10 + (b - '0');
+                    digits++;
+                } else if (b == '\n' && digits > 0) {
+                    dedupSet.set(number);
+                    numbers++;
+                    validLength = position;
+                    number = 0;
+                    digits = 0;
+                } else if (b != '\r') {
+                    break;
+                }
+            }
+        }
+        if (validLength < file.length()) {
+            try (FileChannel channel = FileChannel.open(Paths.get(logFileName), StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+            System.out.println("'" + logFileName + "' has been truncated after its last complete line");
+        }
+        System.out.println(numbers + " numbers have been recovered from '" + logFileName + "'");
     }
 
     /**
-     * It initializes the execution of the thread pool by submitting a task to pick data from the queue and adding a
-     * timed task to print stats about the data received
+     * It initializes the execution of the thread pool by submitting a task per partition to pick data from its queue
+     * and adding a timed task to print stats about the data received. When the log file is dumped, no task picks data
+     * from the queue, and the dump checkpoints are scheduled instead if an interval has been given. The sender of the
+     * acks runs on the thread pool too.
      */
     public void run() {
-        threadPool.submit(this::execute);
+        threadPool.submit(() -> ackSender.run(this));
+        if (!dumpOutput) {
+            for (WriterPartition partition : partitions) {
+                threadPool.submit(partition);
+            }
+        } else if (options.getDumpIntervalSeconds() > 0) {
+            System.out.println("'" + logFileName + "' is going to be dumped every " + options.getDumpIntervalSeconds() + " seconds and at shutdown");
+            threadPool.scheduleWithFixedDelay(this::checkpoint, options.getDumpIntervalSeconds(),
+                    options.getDumpIntervalSeconds(), TimeUnit.SECONDS);
+        } else {
+            System.out.println("'" + logFileName + "' is going to be dumped at shutdown");
+        }
         threadPool.scheduleWithFixedDelay(this::printReport, TEN_SECONDS, TEN_SECONDS, TimeUnit.SECONDS);
     }
 
     /**
-     * It handles the execution of saving logs and logging stats about these savings. It uses a lock to avoid race conditions
-     * when generating the stats about the received numbers.
-     */
-    private void execute() {
-        try (FileWriter fileWriter = new FileWriter(LOGS_FILE_NAME, true);
-             BufferedWriter bufferedWriter = new BufferedWriter(fileWriter)) {
-            System.out.println("Numbers are going to be read from queue and written to file");
-            while (!Thread.interrupted()) {
-                String number = clientInputsQueue.take();
-                synchronized (lock) {
-                    if (receivedNumbers.get(Integer.parseInt(number))) {
-                        duplicatedNumbers++;
-                    } else {
-                        uniqueNumbers++;
-                        uniqueNumbersTotal++;
-                        receivedNumbers.set(Integer.parseInt(number));
-                        try {
-                            bufferedWriter.write(number);
-                        } catch (IOException e) {
-                            System.out.println("There was an error while writing in the file. A number is going to be queued again");
-                            clientInputsQueue.add(number);
-                            continue;
-                        }
-                        bufferedWriter.newLine();
-                    }
+     * It creates the credits of a client which limit how many of its numbers can be waiting for the writers, or
+     * returns null if clients aren't limited. The limit of the options is multiplied by the weight of the host of the
+     * client, and it is never larger than a ring buffer.
+     * @param host Address of the client
+     * @return Credits of the client, to be given to submit, or null
+     */
+    public ClientCredits openCredits(String host) {
+        if (options.getClientInFlightLimit() <= 0) {
+            return null;
+        }
+        long limit = (long) options.getClientInFlightLimit() * options.getClientWeights().getOrDefault(host, 1);
+        return new ClientCredits((int) Math.min(limit, partitions[0].getQueue().getCapacity()));
+    }
+
+    /**
+     * It filters out a number which isn't received by a client with credits, like those loaded from files or
+     * forwarded by peers
+     * @param number Number to be submitted
+     * @throws InterruptedException If the thread is interrupted while waiting for space in the queue
+     */
+    public void submit(int number) throws InterruptedException {
+        submit(number, null, null);
+    }
+
+    /**
+     * It filters out a number received by a client if it is a duplicate, or adds it to the queue to be saved if it
+     * hasn't been received before. It runs on the client's thread, so duplicates never reach the queue and
+     * deduplication scales with the number of clients. When the log file is dumped, setting the bit is all the work
+     * done for a number, and it never waits for the writer. With several writer partitions, the number goes to the
+     * queue of the partition which owns its range. In a cluster, numbers owned by other nodes are forwarded to them
+     * instead. When the client has asked for acks, it records what must be persisted before the number can be
+     * acknowledged: the position of the number in the queue of its partition, everything queued in its partition once
+     * the original of a duplicate has been queued, or the next dump. Clients of a cluster can't ask for acks, since
+     * this node can't tell when a forwarded number has been persisted by its owner.
+     * @param number Number received by a client
+     * @param credits Credits of the client, which waits if it already has as many numbers queued as its limit, or null
+     * @param acks Acks of the client, or null if it hasn't asked for them
+     * @throws InterruptedException If the thread is interrupted while waiting for space in the queue or for credits
+     */
+    public void submit(int number, ClientCredits credits, ClientAcks acks) throws InterruptedException {
+        if (cluster != null && !cluster.owns(number)) {
+            cluster.forward(number);
+        } else if (dumpOutput) {
+            if (receivedNumbers.testAndSet(number)) {
+                metrics.countDuplicate();
+            } else {
+                metrics.countUnique();
+            }
+            if (acks != null) {
+                acks.require(0, startedDumps + 1);
+            }
+        } else {
+            enqueue(number, credits, acks);
+        }
+    }
+
+    /**
+     * It sets the bit of a number and puts it in the queue of its partition, or counts it as a duplicate. The counter
+     * of the stripe of the number is raised before its bit is set and lowered once it has been queued, so a duplicate
+     * whose client has asked for acks waits for the original to be queued before requiring everything queued so far.
+     * @param number Number owned by this server
+     * @param credits Credits of the client, or null
+     * @param acks Acks of the client, or null
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    private void enqueue(int number, ClientCredits credits, ClientAcks acks) throws InterruptedException {
+        int index = partitionIndex(number);
+        WriterPartition partition = partitions[index];
+        int stripe = (number & (ENQUEUING_STRIPES - 1)) * STRIPE_PADDING;
+        long sequence = -1;
+        enqueuingNumbers.getAndIncrement(stripe);
+        try {
+            if (!receivedNumbers.testAndSet(number)) {
+                if (credits != null) {
+                    credits.acquire();
                 }
+                sequence = partition.put(number);
+            }
+        } catch (InterruptedException e) {
+            dropNumber(number);
+            throw e;
+        } finally {
+            enqueuingNumbers.getAndDecrement(stripe);
+        }
+        if (sequence < 0) {
+            metrics.countDuplicate();
+            if (acks != null) {
+                awaitEnqueued(stripe);
+                acks.require(index, partition.getQueue().getProducedCount());
             }
+            return;
+        }
+        if (credits != null) {
+            credits.record(partition.getQueue(), sequence);
+        }
+        if (acks != null) {
+            acks.require(index, sequence + 1);
+        }
+    }
+
+    /**
+     * It waits until no number of a stripe is being queued. The original of a duplicate raised the counter of its
+     * stripe before setting its bit, so it has been queued once the counter is back to zero.
+     * @param stripe Index of the counter of the stripe
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    private void awaitEnqueued(int stripe) throws InterruptedException {
+        while (enqueuingNumbers.get(stripe) != 0) {
+            LockSupport.parkNanos(this, ENQUEUED_BACKOFF_NANOS);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
+    /**
+     * It records that some numbers may be missing from the log files, as when the cluster couldn't be shut down
+     * cleanly, so the deduplication structure isn't checkpointed as consistent with the log file and is rebuilt from it
+     * on the next start
+     */
+    public void markIncomplete() {
+        numbersDropped = true;
+    }
+
+    /**
+     * It forgets a number whose bit has been set but which couldn't be queued, so it is accepted again if it is sent
+     * again. A duplicate of it may have been discarded meanwhile, so the deduplication structure isn't checkpointed as
+     * consistent with the log file and is rebuilt from it on the next start.
+     * @param number Number which hasn't been queued
+     */
+    private void dropNumber(int number) {
+        receivedNumbers.clear(number);
+        numbersDropped = true;
+        System.out.println("The number " + number + " couldn't be queued and it has been discarded");
+    }
+
+    /**
+     * It finds the writer partition which owns a number
+     * @param number Number owned by this server
+     * @return Index of the partition
+     */
+    private int partitionIndex(int number) {
+        return partitions.length == 1 ? 0 : (int) ((number - partitionRangeStart) * (long) partitions.length / partitionRangeSize);
+    }
+
+    /**
+     * It dumps the log file at a checkpoint. The server keeps running if the dump fails, since the next one rewrites
+     * the whole file.
+     */
+    private void checkpoint() {
+        try {
+            dump();
         } catch (IOException e) {
-            System.out.println("Error while managing 'numbers.log' file: " + e.getMessage());
-        } catch (InterruptedException e) { //Take() exception
-            System.out.println("LogFileTask thread has been interrupted");
+            System.out.println("Error while dumping '" + logFileName + "': " + e.getMessage());
         }
     }
 
     /**
-     * It is responsible for shutting down the thread pool for handling the queue and the timed task.
+     * It rewrites the log file with every number of the deduplication structure in a single sequential pass over its
+     * bits, so the numbers come out sorted and are written with large FileChannel writes. They are written to a
+     * temporary file which then replaces the log file, so a dump which fails halfway leaves the previous one intact.
+     */
+    private void dump() throws IOException {
+        long startNanos = System.nanoTime();
+        long dump = ++startedDumps;
+        Path dumpFile = Paths.get(logFileName + DUMP_FILE_SUFFIX);
+        Files.deleteIfExists(dumpFile);
+        long numbers = 0;
+        try (NumberWriter writer = new ChannelNumberWriter(dumpFile.toString(), DUMP_BATCH_SIZE, options.getWriterForcePolicy())) {
+            for (int number = receivedNumbers.nextSetBit(0); number >= 0; number = receivedNumbers.nextSetBit(number + 1)) {
+                writer.write(number);
+                numbers++;
+            }
+        }
+        Files.move(dumpFile, Paths.get(logFileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        persistedDumps = dump;
+        ackSender.wakeUp();
+        System.out.println(numbers + " numbers have been dumped to '" + logFileName + "' in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms");
+    }
+
+    /**
+     * It is responsible for shutting down the thread pool for handling the queues and the timed task, and closing the
+     * structure used to deduplicate numbers. The queues are closed, so every writer drains what is left in its queue,
+     * commits it and stops, and the thread pool is waited for as long as that takes instead of interrupting writers
+     * which still hold numbers. It must only be called once nothing else is going to be submitted. With several writer
+     * partitions, their segments are merged into the log file once every writer has stopped. When the log file is
+     * dumped, the last dump is done once the thread pool has stopped, so it contains every number received.
      */
     public void close() {
         System.out.println("Closing LogFileTask");
-        Utils.shutdownAndAwaitTermination(threadPool, SHUTDOWN_TIMEOUT);
+        for (WriterPartition partition : partitions) {
+            partition.finish();
+        }
+        ackSender.close();
+        threadPool.close();
+        if (!dumpOutput) {
+            logFileComplete = !numbersDropped;
+            for (WriterPartition partition : partitions) {
+                logFileComplete &= partition.isComplete();
+            }
+        }
+        if (!dumpOutput && partitions.length > 1) {
+            try {
+                mergeSegments();
+            } catch (IOException e) {
+                logFileComplete = false;
+                System.out.println("Error while merging the segments into '" + logFileName + "': " + e.getMessage());
+            }
+        } else if (dumpOutput) {
+            try {
+                dump();
+                logFileComplete = true;
+            } catch (IOException e) {
+                System.out.println("Error while dumping '" + logFileName + "': " + e.getMessage());
+            }
+        }
+        closeDedupSet();
+    }
+
+    /**
+     * It appends the segments written by the partitions to the log file in the order of their ranges, and deletes
+     * them. Each segment is forced to the storage device before it is deleted, so a crash never loses a number which
+     * was in a segment. A segment is only appended up to its last complete line, since a crash may have left a line
+     * partially written or zeros at the end of a memory-mapped region.
+     */
+    private void mergeSegments() throws IOException {
+        List<Path> segments = findSegments();
+        if (segments.isEmpty()) {
+            return;
+        }
+        long startNanos = System.nanoTime();
+        try (FileChannel logChannel = FileChannel.open(Paths.get(logFileName), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            for (Path segment : segments) {
+                try (FileChannel segmentChannel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                    long length = completeLength(segmentChannel);
+                    for (long position = 0; position < length; ) {
+                        position += segmentChannel.transferTo(position, length - position, logChannel);
+                    }
+                }
+                logChannel.force(false);
+                Files.delete(segment);
+            }
+        }
+        System.out.println(segments.size() + " segments have been merged into '" + logFileName + "' in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos) + " ms");
+    }
+
+    /**
+     * It finds the segments next to the log file, including those left by a previous run with a different number of
+     * partitions
+     * @return Segments sorted by the index of their partition
+     */
+    private List<Path> findSegments() throws IOException {
+        Path logFile = Paths.get(logFileName).toAbsolutePath();
+        String prefix = logFile.getFileName() + SEGMENT_FILE_SUFFIX;
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> directory = Files.newDirectoryStream(logFile.getParent(), prefix + "*")) {
+            for (Path segment : directory) {
+                String index = segment.getFileName().toString().substring(prefix.length());
+                if (!index.isEmpty() && index.chars().allMatch(Character::isDigit)) {
+                    segments.add(segment);
+                }
+            }
+        }
+        segments.sort(Comparator.comparingInt(segment ->
+                Integer.parseInt(segment.getFileName().toString().substring(prefix.length()))));
+        return segments;
+    }
+
+    /**
+     * It finds the length of a file up to its last newline
+     * @param channel Channel of the file
+     * @return Number of bytes before and including the last newline, or 0 if there isn't any
+     */
+    private long completeLength(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(DUMP_BATCH_SIZE);
+        long end = channel.size();
+        while (end > 0) {
+            long start = Math.max(0, end - buffer.capacity());
+            buffer.clear().limit((int) (end - start));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = buffer.position() - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return 0;
     }
 
     /**
-     * It runs a method which logs stats about the numbers received by the clients. It uses a lock to avoid race conditions when
-     * the variables are modified.
+     * It checkpoints the deduplication structure only if every number it contains has been written to the log file,
+     * so a structure which doesn't match the log file is rebuilt on the next start
+     */
+    private void closeDedupSet() {
+        try {
+            if (logFileComplete) {
+                receivedNumbers.checkpoint(new File(logFileName).length());
+            } else if (options.getDedupMode() == DedupMode.MAPPED) {
+                System.out.println("Some numbers weren't written to '" + logFileName + "'. The index will be rebuilt on the next start");
+            }
+            receivedNumbers.close();
+        } catch (IOException e) {
+            System.out.println("Error while closing the deduplication structure: " + e.getMessage());
+        }
+    }
+
+    /**
+     * It runs a method which logs stats about the numbers received by the clients. They are read from the same metrics
+     * published through JMX, which add up every writer partition. The counters are never reset, so no update made by
+     * the clients is lost; the numbers of the period are the difference with the last report.
      */
     public void printReport() {
-        synchronized (lock) {
-            System.out.println("Received " + uniqueNumbers + " unique numbers, " + duplicatedNumbers + " duplicates. " +"Unique total: " + uniqueNumbersTotal);
-            uniqueNumbers = 0;
-            duplicatedNumbers = 0;
+        long uniqueNumbers = metrics.getUniqueNumbers();
+        long duplicatedNumbers = metrics.getDuplicatedNumbers();
+        long invalidLines = metrics.getInvalidLines();
+        long throttledNanos = flowControl.getThrottledNanosTotal();
+        System.out.println("Received " + (uniqueNumbers - reportedUniqueNumbers) + " unique numbers, "
+                + (duplicatedNumbers - reportedDuplicatedNumbers) + " duplicates. " + "Unique total: " + uniqueNumbers);
+        if (throttledNanos != reportedThrottledNanos || flowControl.isThrottled()) {
+            System.out.println("Clients throttled for " + TimeUnit.NANOSECONDS.toMillis(throttledNanos - reportedThrottledNanos)
+                    + " ms. Queued numbers: " + metrics.getQueueDepth() + "/" + metrics.getQueueCapacity());
+        }
+        if (partitions.length > 1) {
+            StringBuilder written = new StringBuilder("Numbers written by partition:");
+            for (WriterPartition partition : partitions) {
+                written.append(' ').append(partition.getWrittenNumbers());
+            }
+            System.out.println(written);
+        }
+        System.out.println("Clients connected: " + metrics.getActiveConnections() + ". Invalid lines: "
+                + invalidLines + ". Commits: " + metrics.getWriterCommits() + ", "
+                + String.format("%.1f", metrics.getWriterMeanBatchSize()) + " numbers on average. Persist latency p50/p99/max: "
+                + metrics.getPersistLatencyP50Micros() + "/" + metrics.getPersistLatencyP99Micros() + "/"
+                + metrics.getPersistLatencyMaxMicros() + " us");
+        if (ackSender.getSentAcks() > 0) {
+            System.out.println("Acks sent to the clients: " + ackSender.getSentAcks());
+        }
+        if (cluster != null) {
+            cluster.printReport(uniqueNumbers);
+        }
+        reportedUniqueNumbers = uniqueNumbers;
+        reportedDuplicatedNumbers = duplicatedNumbers;
+        reportedInvalidLines = invalidLines;
+        reportedThrottledNanos = throttledNanos;
+    }
+
+    /**
+     * It tells whether a number has been received, by reading the deduplication structure without locks. The number
+     * may not have been written to the log file yet.
+     * @param number Number to be checked
+     * @return True if the number has been received by this server
+     */
+    public boolean isReceived(int number) {
+        return receivedNumbers.get(number);
+    }
+
+    /**
+     * Get the unique numbers received when the last report was printed
+     */
+    public long getReportedUniqueNumbers() {
+        return reportedUniqueNumbers;
+    }
+
+    /**
+     * Get the duplicated numbers received when the last report was printed
+     */
+    public long getReportedDuplicatedNumbers() {
+        return reportedDuplicatedNumbers;
+    }
+
+    /**
+     * Get the invalid lines received when the last report was printed
+     */
+    public long getReportedInvalidLines() {
+        return reportedInvalidLines;
+    }
+
+    /**
+     * Get metrics
+     */
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * It tells whether clients can ask for acks. A node of a cluster refuses them, since the numbers it forwards are
+     * persisted by other nodes, which don't tell it when they have been committed.
+     * @return True if the server runs alone
+     */
+    public boolean acceptsAcks() {
+        return cluster == null;
+    }
+
+    /**
+     * Get the cluster this server belongs to, or null if it runs alone
+     */
+    public Cluster getCluster() {
+        return cluster;
+    }
+
+    /**
+     * Get partitions
+     */
+    public WriterPartition[] getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * It tells what has been persisted so far, which is compared with what the numbers of the clients which have asked
+     * for acks require
+     * @return Numbers committed by every writer partition, or the last dump completed if the log file is dumped
+     */
+    public long[] getPersistedPositions() {
+        if (dumpOutput) {
+            return new long[]{persistedDumps};
+        }
+        long[] positions = new long[partitions.length];
+        for (int i = 0; i < partitions.length; i++) {
+            positions[i] = partitions[i].getWrittenNumbers();
+        }
+        return positions;
+    }
+
+    /**
+     * Get ackSender
+     */
+    public AckSender getAckSender() {
+        return ackSender;
+    }
+
+    /**
+     * Get the numbers committed to the log file, or to the segments, by every writer partition
+     */
+    public long getWrittenNumbers() {
+        long writtenNumbers = 0;
+        for (WriterPartition partition : partitions) {
+            writtenNumbers += partition.getWrittenNumbers();
         }
+        return writtenNumbers;
     }
 
     /**
-     * Method that checks if the file 'numbers.log' exists, and deletes it if so.
+     * Get whether every number received was in the log file when it was closed
+     */
+    public boolean isLogFileComplete() {
+        return logFileComplete;
+    }
+
+    /**
+     * Get flowControl
+     */
+    public FlowControl getFlowControl() {
+        return flowControl;
+    }
+
+    /**
+     * Method that checks if the log file exists, and deletes it if so, together with any segment left by the
+     * partitions.
      */
     private void deleteFileIfExists() {
-        File file = new File(LOGS_FILE_NAME);
+        File file = new File(logFileName);
         if (file.exists()) {
             if (file.delete()) {
-                System.out.println("'numbers.log' already existed and it has been deleted");
+                System.out.println("'" + logFileName + "' already existed and it has been deleted");
             } else {
-                System.out.println("'numbers.log' may not have been deleted properly");
+                System.out.println("'" + logFileName + "' may not have been deleted properly");
             }
         }
+        try {
+            for (Path segment : findSegments()) {
+                Files.delete(segment);
+            }
+        } catch (IOException e) {
+            System.out.println("Segments of '" + logFileName + "' may not have been deleted properly: " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class MappedBitSet implements DedupSet {
+
+    private static final VarHandle WORDS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final long MAGIC = 0x4e554d4253455431L;
+    private static final int HEADER_SIZE = 4096;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int NUM_BITS_OFFSET = 8;
+    private static final int CLEAN_OFFSET = 12;
+    private static final int LOG_LENGTH_OFFSET = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int numWords;
+    private final boolean closedCleanly;
+    private final long checkpointedLogLength;
+
+    /**
+     * Constructor to create a set of bits which lives in a memory-mapped file, off the Java heap, so it survives
+     * restarts. The header of the file records whether the set was closed cleanly and the length of the log file it
+     * was consistent with. The set is marked as open, and forced to disk, before it is used, so a crash always leaves
+     * it marked as not cleanly closed.
+     * @param fileName Name of the file which holds the set. It is created if it doesn't exist.
+     * @param numBits Number of bits of the set. Valid indexes go from 0 to numBits - 1.
+     */
+    public MappedBitSet(String fileName, int numBits) throws IOException {
+        numWords = ((numBits - 1) >> ADDRESS_BITS_PER_WORD) + 1;
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        boolean existed = channel.size() > 0;
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) numWords * Long.BYTES);
+        buffer.order(ByteOrder.nativeOrder());
+
+        boolean valid = existed && buffer.getLong(MAGIC_OFFSET) == MAGIC && buffer.getInt(NUM_BITS_OFFSET) == numBits;
+        closedCleanly = valid && buffer.getInt(CLEAN_OFFSET) == 1;
+        checkpointedLogLength = closedCleanly ? buffer.getLong(LOG_LENGTH_OFFSET) : -1;
+        if (!valid) {
+            clearWords();
+            buffer.putLong(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(NUM_BITS_OFFSET, numBits);
+        }
+        buffer.putInt(CLEAN_OFFSET, 0);
+        buffer.force();
+    }
+
+    @Override
+    public boolean testAndSet(int bitIndex) {
+        int byteIndex = HEADER_SIZE + (bitIndex >> ADDRESS_BITS_PER_WORD) * Long.BYTES;
+        long mask = 1L << bitIndex;
+        long word = (long) WORDS.getVolatile(buffer, byteIndex);
+        while ((word & mask) == 0) {
+            long witness = (long) WORDS.compareAndExchange(buffer, byteIndex, word, word | mask);
+            if (witness == word) {
+                return false;
+            }
+            word = witness;
+        }
+        return true;
+    }
+
+    @Override
+    public void clear(int bitIndex) {
+        int byteIndex = HEADER_SIZE + (bitIndex >> ADDRESS_BITS_PER_WORD) * Long.BYTES;
+        long mask = 1L << bitIndex;
+        long word = (long) WORDS.getVolatile(buffer, byteIndex);
+        while ((word & mask) != 0) {
+            long witness = (long) WORDS.compareAndExchange(buffer, byteIndex, word, word & ~mask);
+            if (witness == word) {
+                return;
+            }
+            word = witness;
+        }
+    }
+
+    @Override
+    public boolean get(int bitIndex) {
+        int byteIndex = HEADER_SIZE + (bitIndex >> ADDRESS_BITS_PER_WORD) * Long.BYTES;
+        return ((long) WORDS.getVolatile(buffer, byteIndex) & (1L << bitIndex)) != 0;
+    }
+
+    @Override
+    public void set(int bitIndex) {
+        testAndSet(bitIndex);
+    }
+
+    @Override
+    public int nextSetBit(int fromIndex) {
+        int wordIndex = fromIndex >> ADDRESS_BITS_PER_WORD;
+        if (wordIndex >= numWords) {
+            return -1;
+        }
+        long word = (long) WORDS.getVolatile(buffer, HEADER_SIZE + wordIndex * Long.BYTES) & (-1L << fromIndex);
+        while (word == 0) {
+            if (++wordIndex == numWords) {
+                return -1;
+            }
+            word = (long) WORDS.getVolatile(buffer, HEADER_SIZE + wordIndex * Long.BYTES);
+        }
+        return (wordIndex << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * It clears every bit of the set. It must not be called while other threads are using it.
+     */
+    public void clear() {
+        clearWords();
+    }
+
+    private void clearWords() {
+        for (int i = 0; i < numWords; i++) {
+            buffer.putLong(HEADER_SIZE + i * Long.BYTES, 0L);
+        }
+    }
+
+    /**
+     * It tells whether the set can be used as it is together with the log file: it was closed cleanly and the log
+     * file hasn't changed since then
+     * @param logLength Current length of the log file
+     * @return True if the set matches the log file
+     */
+    public boolean isConsistentWith(long logLength) {
+        return closedCleanly && checkpointedLogLength == logLength;
+    }
+
+    /**
+     * It forces every bit to disk and records that the set is consistent with a log file of the given length, so the
+     * next start can use the set without reading the log file
+     * @param logLength Length of the log file once every number of the set has been written to it
+     */
+    @Override
+    public void checkpoint(long logLength) {
+        buffer.force();
+        buffer.putLong(LOG_LENGTH_OFFSET, logLength);
+        buffer.putInt(CLEAN_OFFSET, 1);
+        buffer.force();
+    }
+
+    /**
+     * It closes the file. A set which hasn't been checkpointed stays marked as not cleanly closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
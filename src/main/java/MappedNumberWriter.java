@@ -0,0 +1,82 @@
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class MappedNumberWriter implements NumberWriter {
+
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final int MAX_LINE_BYTES = 10 + LINE_SEPARATOR.length;
+    private static final int REGION_SIZE = 64 * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final ForcePolicy forcePolicy;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private int pendingNumbers;
+
+    /**
+     * Constructor to create a writer which appends numbers to memory-mapped regions of the file. A new region is
+     * mapped after the end of the previous one whenever it gets full, and the file is truncated to the bytes actually
+     * written when the writer is closed.
+     * @param fileName Name of the file where numbers are appended
+     * @param forcePolicy Policy which decides whether a commit waits for the storage device
+     */
+    public MappedNumberWriter(String fileName, ForcePolicy forcePolicy) throws IOException {
+        this.forcePolicy = forcePolicy;
+        channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        mapRegion(channel.size());
+    }
+
+    @Override
+    public void write(int number) throws IOException {
+        if (region.remaining() < MAX_LINE_BYTES) {
+            if (forcePolicy == ForcePolicy.COMMIT) {
+                region.force();
+            }
+            mapRegion(regionStart + region.position());
+        }
+        Utils.putNumber(region, number);
+        region.put(LINE_SEPARATOR);
+        pendingNumbers++;
+    }
+
+    /**
+     * Numbers written into the mapped region are already visible to any reader of the file, so a commit only has to
+     * wait for the storage device when the force policy says so
+     */
+    @Override
+    public void commit() throws IOException {
+        if (forcePolicy == ForcePolicy.COMMIT) {
+            region.force();
+        }
+        pendingNumbers = 0;
+    }
+
+    /**
+     * It maps the next region of the file
+     * @param start Position of the file where the region starts
+     */
+    private void mapRegion(long start) throws IOException {
+        regionStart = start;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, REGION_SIZE);
+    }
+
+    @Override
+    public int getPendingNumbers() {
+        return pendingNumbers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+            channel.truncate(regionStart + region.position());
+        } finally {
+            channel.close();
+        }
+    }
+}
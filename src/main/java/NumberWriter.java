@@ -0,0 +1,40 @@
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface NumberWriter extends Closeable {
+
+    /**
+     * It opens the backend selected in the options to append numbers to a file
+     * @param fileName Name of the file
+     * @param options Options which select the backend and its force policy
+     * @return Writer ready to be used
+     */
+    static NumberWriter open(String fileName, ServerOptions options) throws IOException {
+        switch (options.getWriterBackend()) {
+            case CHANNEL:
+                return new ChannelNumberWriter(fileName, options.getWriterBatchSize(), options.getWriterForcePolicy());
+            case MAPPED:
+                return new MappedNumberWriter(fileName, options.getWriterForcePolicy());
+            default:
+                return new StreamNumberWriter(fileName, options.getWriterForcePolicy());
+        }
+    }
+
+    /**
+     * It writes a number followed by a server-native newline sequence. The number is not guaranteed to be in the file
+     * until the next commit.
+     * @param number Number to be written
+     */
+    void write(int number) throws IOException;
+
+    /**
+     * It hands every number written since the last commit over to the file, and forces them to the storage device if
+     * the force policy says so
+     */
+    void commit() throws IOException;
+
+    /**
+     * Get the number of numbers written since the last commit
+     */
+    int getPendingNumbers();
+}
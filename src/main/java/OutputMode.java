@@ -0,0 +1,16 @@
+/**
+ * Ways of writing the unique numbers into the log file
+ */
+public enum OutputMode {
+
+    /**
+     * Numbers are appended to the log file by the writer as they arrive, in the order they are received
+     */
+    INCREMENTAL,
+
+    /**
+     * Numbers are only recorded in the deduplication structure, and the log file is rewritten from it at shutdown and
+     * at optional checkpoints, sorted in ascending order
+     */
+    DUMP
+}
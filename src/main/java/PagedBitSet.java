@@ -0,0 +1,128 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class PagedBitSet implements DedupSet {
+
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+    private static final int ADDRESS_BITS_PER_PAGE = 19;
+    private static final int WORDS_PER_PAGE = 1 << (ADDRESS_BITS_PER_PAGE - ADDRESS_BITS_PER_WORD);
+    private static final int WORD_INDEX_MASK = WORDS_PER_PAGE - 1;
+
+    private final AtomicReferenceArray<AtomicLongArray> pages;
+
+    /**
+     * Constructor to create a set of bits which is split into pages of 64 KB. A page is only allocated the first time
+     * one of its bits is set, so the memory used grows with the range of numbers received instead of being allocated
+     * up front.
+     * @param numBits Number of bits of the set. Valid indexes go from 0 to numBits - 1.
+     */
+    public PagedBitSet(int numBits) {
+        pages = new AtomicReferenceArray<>(((numBits - 1) >> ADDRESS_BITS_PER_PAGE) + 1);
+    }
+
+    @Override
+    public boolean testAndSet(int bitIndex) {
+        AtomicLongArray page = getOrAllocatePage(bitIndex >> ADDRESS_BITS_PER_PAGE);
+        int wordIndex = (bitIndex >> ADDRESS_BITS_PER_WORD) & WORD_INDEX_MASK;
+        long mask = 1L << bitIndex;
+        long word = page.get(wordIndex);
+        while ((word & mask) == 0) {
+            long witness = page.compareAndExchange(wordIndex, word, word | mask);
+            if (witness == word) {
+                return false;
+            }
+            word = witness;
+        }
+        return true;
+    }
+
+    /**
+     * It clears a bit with a CAS on its word. The page is never released, since other bits may be set in it.
+     * @param bitIndex Index of the bit
+     */
+    @Override
+    public void clear(int bitIndex) {
+        AtomicLongArray page = pages.get(bitIndex >> ADDRESS_BITS_PER_PAGE);
+        if (page == null) {
+            return;
+        }
+        int wordIndex = (bitIndex >> ADDRESS_BITS_PER_WORD) & WORD_INDEX_MASK;
+        long mask = 1L << bitIndex;
+        long word = page.get(wordIndex);
+        while ((word & mask) != 0) {
+            long witness = page.compareAndExchange(wordIndex, word, word & ~mask);
+            if (witness == word) {
+                return;
+            }
+            word = witness;
+        }
+    }
+
+    /**
+     * It returns the value of a bit. Pages which haven't been allocated are read as empty, so reading never allocates.
+     */
+    @Override
+    public boolean get(int bitIndex) {
+        AtomicLongArray page = pages.get(bitIndex >> ADDRESS_BITS_PER_PAGE);
+        return page != null && (page.get((bitIndex >> ADDRESS_BITS_PER_WORD) & WORD_INDEX_MASK) & (1L << bitIndex)) != 0;
+    }
+
+    @Override
+    public void set(int bitIndex) {
+        testAndSet(bitIndex);
+    }
+
+    /**
+     * It finds the first bit set at or after an index. Pages which haven't been allocated are skipped without reading
+     * them, so a scan only costs the pages actually used.
+     */
+    @Override
+    public int nextSetBit(int fromIndex) {
+        int pageIndex = fromIndex >> ADDRESS_BITS_PER_PAGE;
+        int wordIndex = (fromIndex >> ADDRESS_BITS_PER_WORD) & WORD_INDEX_MASK;
+        long mask = -1L << fromIndex;
+        for (; pageIndex < pages.length(); pageIndex++, wordIndex = 0, mask = -1L) {
+            AtomicLongArray page = pages.get(pageIndex);
+            if (page == null) {
+                continue;
+            }
+            for (; wordIndex < WORDS_PER_PAGE; wordIndex++, mask = -1L) {
+                long word = page.get(wordIndex) & mask;
+                if (word != 0) {
+                    return (pageIndex << ADDRESS_BITS_PER_PAGE) + (wordIndex << ADDRESS_BITS_PER_WORD)
+                            + Long.numberOfTrailingZeros(word);
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * It returns a page, allocating it if it doesn't exist yet. When several threads allocate the same page at the same
+     * time, only the first one is kept.
+     * @param pageIndex Index of the page
+     * @return Page
+     */
+    private AtomicLongArray getOrAllocatePage(int pageIndex) {
+        AtomicLongArray page = pages.get(pageIndex);
+        if (page != null) {
+            return page;
+        }
+        AtomicLongArray newPage = new AtomicLongArray(WORDS_PER_PAGE);
+        AtomicLongArray witness = pages.compareAndExchange(pageIndex, null, newPage);
+        return witness != null ? witness : newPage;
+    }
+
+    /**
+     * Get the number of pages allocated so far
+     */
+    public int getAllocatedPages() {
+        int allocatedPages = 0;
+        for (int i = 0; i < pages.length(); i++) {
+            if (pages.get(i) != null) {
+                allocatedPages++;
+            }
+        }
+        return allocatedPages;
+    }
+}
@@ -0,0 +1,240 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class PeerLink implements Runnable {
+
+    /**
+     * Frame header which asks the peer to shut down, like the 'terminate' keyword. It is the last frame of a link, so
+     * it also tells the peer that every number of this node has been sent.
+     */
+    public static final int TERMINATE_OPCODE = -1;
+
+    /**
+     * Frame header followed by a long with the unique total of the sender, used for the cluster report
+     */
+    public static final int REPORT_OPCODE = -2;
+
+    /**
+     * Reply of the peer to the terminate opcode, once it has submitted every number received before it
+     */
+    public static final int TERMINATE_ACK = -3;
+
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final int FRAME_NUMBERS = 4096;
+    private static final long LINGER_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int RECONNECT_MILLIS = 500;
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final int localNodeIndex;
+    private final InetSocketAddress peerAddress;
+    private final String peerName;
+    private final IntRingBuffer queue;
+    private final ByteBuffer frame;
+    private final AtomicLong pendingReport;
+    private final LongAdder forwardedNumbers;
+    private Thread sender;
+    private volatile Socket peerSocket;
+    private volatile long closeDeadlineNanos;
+    private volatile boolean terminated;
+
+    /**
+     * Constructor to create a persistent connection to another node of the cluster. Numbers owned by the peer are
+     * queued by the clients and sent in frames by a sender thread, which reconnects whenever the connection is lost.
+     * A frame which may not have reached the peer is sent again after reconnecting, which is safe since the peer
+     * discards duplicates.
+     * @param localNodeIndex Index of this node, sent first so the peer knows who is connecting
+     * @param peerAddress Address where the peer listens for other nodes
+     */
+    public PeerLink(int localNodeIndex, InetSocketAddress peerAddress) {
+        this.localNodeIndex = localNodeIndex;
+        this.peerAddress = peerAddress;
+        peerName = peerAddress.getHostString() + ":" + peerAddress.getPort();
+        queue = new IntRingBuffer(QUEUE_CAPACITY);
+        frame = ByteBuffer.allocate(Integer.BYTES * (FRAME_NUMBERS + 1));
+        pendingReport = new AtomicLong(-1);
+        forwardedNumbers = new LongAdder();
+    }
+
+    /**
+     * It starts the sender thread
+     */
+    public void start() {
+        sender = new Thread(this, "peer-link-" + peerName);
+        sender.start();
+    }
+
+    /**
+     * It queues a number owned by the peer, waiting for space if the peer is slower than the clients, so the clients
+     * are slowed down as when the ring buffer of the server is full
+     * @param number Number to be forwarded
+     * @throws InterruptedException If the thread is interrupted while waiting for space in the queue
+     * @throws IllegalStateException If the link has been closed
+     */
+    public void forward(int number) throws InterruptedException {
+        queue.put(number);
+    }
+
+    /**
+     * It asks the sender to send the unique total of this node with the next frame
+     * @param uniqueTotal Unique numbers received by this node
+     */
+    public void sendReport(long uniqueTotal) {
+        pendingReport.set(uniqueTotal);
+    }
+
+    /**
+     * It closes the queue and waits for the sender to send the numbers still queued followed by the terminate opcode,
+     * and for the peer to acknowledge it. The peer is told even if it has asked the cluster to shut down, since its
+     * numbers must reach it anyway. The sender keeps reconnecting until the peer can be reached or the deadline
+     * expires, when its connection is closed and the numbers it still holds are reported as not forwarded. It must be
+     * called once no client can forward numbers.
+     * @param deadlineNanos Value of System.nanoTime() after which the sender stops trying to reach the peer
+     * @return True if the peer has acknowledged every number of the link
+     * @throws InterruptedException If the thread is interrupted while waiting
+     */
+    public boolean close(long deadlineNanos) throws InterruptedException {
+        closeDeadlineNanos = deadlineNanos;
+        queue.close();
+        sender.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime())));
+        if (sender.isAlive()) {
+            sender.interrupt();
+            closeQuietly(peerSocket);
+            sender.join();
+        }
+        if (!terminated) {
+            int unforwardedNumbers = queue.size() + frame.position() / Integer.BYTES - 1;
+            System.out.println(peerName + " hasn't acknowledged the last numbers of this node. " + unforwardedNumbers
+                    + " numbers couldn't be forwarded to it");
+        }
+        return terminated;
+    }
+
+    /**
+     * It connects to the peer and sends frames until the link is closed, reconnecting when the connection is lost or
+     * while the peer hasn't started yet. Once the link is closed, it stops reconnecting when the deadline given to
+     * close() has expired.
+     */
+    @Override
+    public void run() {
+        frame.clear().position(Integer.BYTES);
+        boolean connected = false;
+        try {
+            while (true) {
+                try (Socket socket = connect();
+                     DataOutputStream output = new DataOutputStream(
+                             new BufferedOutputStream(socket.getOutputStream(), WRITE_BUFFER_SIZE));
+                     DataInputStream input = new DataInputStream(socket.getInputStream())) {
+                    connected = true;
+                    output.writeInt(localNodeIndex);
+                    send(output);
+                    if (input.readInt() != TERMINATE_ACK) {
+                        throw new IOException("Unexpected reply to the terminate opcode");
+                    }
+                    terminated = true;
+                    return;
+                } catch (IOException e) {
+                    if (Thread.interrupted()) {
+                        throw new InterruptedException();
+                    }
+                    if (queue.isClosed() && System.nanoTime() - closeDeadlineNanos >= 0) {
+                        System.out.println("Giving up on " + peerName + ": " + e.getMessage());
+                        return;
+                    }
+                    if (connected) {
+                        System.out.println("Connection to " + peerName + " lost: " + e.getMessage() + ". Reconnecting");
+                        connected = false;
+                    }
+                    Thread.sleep(RECONNECT_MILLIS);
+                }
+            }
+        } catch (InterruptedException e) {
+            System.out.println("Link to " + peerName + " has been interrupted");
+        }
+    }
+
+    /**
+     * It opens a connection to the peer, which is kept so close() can abort any blocking operation on it
+     * @return Socket connected to the peer
+     * @throws IOException If the peer can't be reached
+     */
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        peerSocket = socket;
+        try {
+            socket.connect(new InetSocketAddress(peerAddress.getHostString(), peerAddress.getPort()), CONNECT_TIMEOUT_MILLIS);
+        } catch (IOException e) {
+            closeQuietly(socket);
+            throw e;
+        }
+        return socket;
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            System.out.println("Error while closing the connection to " + peerName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * It drains the queue into frames and sends them, together with the pending report, until the queue is closed and
+     * empty, and then sends the terminate opcode. A frame is only cleared once it has been flushed, so it is sent again
+     * after reconnecting if the connection fails.
+     * @param output Stream of the connection
+     */
+    private void send(DataOutputStream output) throws IOException, InterruptedException {
+        int[] batch = new int[FRAME_NUMBERS];
+        while (true) {
+            if (frame.position() > Integer.BYTES) {
+                frame.putInt(0, frame.position() / Integer.BYTES - 1);
+                output.write(frame.array(), 0, frame.position());
+            }
+            long report = pendingReport.getAndSet(-1);
+            if (report >= 0) {
+                output.writeInt(REPORT_OPCODE);
+                output.writeLong(report);
+            }
+            output.flush();
+            frame.clear().position(Integer.BYTES);
+            if (queue.isClosed() && queue.size() == 0) {
+                output.writeInt(TERMINATE_OPCODE);
+                output.flush();
+                return;
+            }
+            queue.awaitNotEmpty(LINGER_NANOS);
+            int count = queue.drainTo(batch);
+            for (int i = 0; i < count; i++) {
+                frame.putInt(batch[i]);
+            }
+            forwardedNumbers.add(count);
+        }
+    }
+
+    /**
+     * Get the numbers taken from the queue to be sent to the peer
+     */
+    public long getForwardedNumbers() {
+        return forwardedNumbers.sum();
+    }
+
+    /**
+     * Get peerAddress
+     */
+    public InetSocketAddress getPeerAddress() {
+        return peerAddress;
+    }
+}
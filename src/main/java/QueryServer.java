@@ -0,0 +1,237 @@
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+public class QueryServer {
+
+    private static final int DIGITS_INPUT_SIZE = 9;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_CONNECTIONS = 64;
+    private static final int MAX_LINE_LENGTH = 64 * 1024;
+    private static final int MAX_CONTAINS_NUMBERS = 4096;
+    private static final String CONTAINS_QUERY = "contains";
+    private static final String TOTAL_QUERY = "total";
+    private static final String WINDOW_QUERY = "window";
+
+    private final int port;
+    private final LogFileTask logFileTask;
+    private final Set<Socket> connections;
+    private final Semaphore connectionPermits;
+    private ServerSocket serverSocket;
+    private volatile boolean closed;
+
+    /**
+     * Constructor to create a listener which answers read-only queries about the numbers received, so other services
+     * don't need to read the log file. Queries read the deduplication structure and the metrics like the report does,
+     * without locks, so they never slow down the clients which send numbers.
+     * @param port Port where the queries are received
+     * @param logFileTask LogFileTask whose deduplication structure and metrics are queried
+     */
+    public QueryServer(int port, LogFileTask logFileTask) {
+        this.port = port;
+        this.logFileTask = logFileTask;
+        connections = ConcurrentHashMap.newKeySet();
+        connectionPermits = new Semaphore(MAX_CONNECTIONS);
+    }
+
+    /**
+     * It binds the query port and starts accepting query clients on their own thread. Each query client is served by
+     * a virtual thread, and they have their own limit, so they never take a permit from the clients which send numbers.
+     * @throws IOException If the port can't be bound
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(port));
+        Thread.ofPlatform().name("query-acceptor").start(this::acceptQueries);
+        System.out.println("Queries are going to be answered on port " + port);
+    }
+
+    /**
+     * It accepts query clients until the listener is closed. A client which arrives while the maximum number of query
+     * clients are connected gets an error line and is disconnected.
+     */
+    private void acceptQueries() {
+        try {
+            while (!closed) {
+                Socket connection = serverSocket.accept();
+                if (!connectionPermits.tryAcquire()) {
+                    reject(connection);
+                    continue;
+                }
+                connections.add(connection);
+                Thread.ofVirtual().start(() -> answer(connection));
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                System.out.println("Error while accepting query clients: " + e.getMessage());
+            }
+        }
+    }
+
+    private void reject(Socket connection) {
+        try {
+            connection.getOutputStream().write("error too many query clients\n".getBytes(StandardCharsets.US_ASCII));
+        } catch (IOException e) {
+            System.out.println("Error while rejecting a query client: " + e.getMessage());
+        } finally {
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * It answers every query line of a client with a single line. Answers are flushed once no more queries are
+     * waiting to be read, so a client which sends many queries without waiting gets its answers in large writes. A
+     * line longer than the limit gets an error line and the client is disconnected, so a client can't make the
+     * server buffer an endless line.
+     * @param connection Connection of the query client
+     */
+    private void answer(Socket connection) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.getInputStream(), StandardCharsets.US_ASCII), BUFFER_SIZE);
+             Writer writer = new BufferedWriter(
+                     new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.US_ASCII), BUFFER_SIZE)) {
+            StringBuilder line = new StringBuilder();
+            int result;
+            while ((result = readLine(reader, line)) > 0) {
+                writer.write(query(line.toString()));
+                writer.write('\n');
+                if (!reader.ready()) {
+                    writer.flush();
+                }
+            }
+            if (result < 0) {
+                writer.write("error query longer than " + MAX_LINE_LENGTH + " characters\n");
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                System.out.println("Error while answering a query client: " + e.getMessage());
+            }
+        } finally {
+            connections.remove(connection);
+            closeQuietly(connection);
+            connectionPermits.release();
+        }
+    }
+
+    /**
+     * It reads the next line of a query client, without its line separator, like BufferedReader.readLine, but it stops
+     * once the line is longer than the limit
+     * @param reader Reader of the connection
+     * @param line Builder where the line is stored
+     * @return 1 if a line has been read, 0 if the client has closed the connection, or -1 if the line is too long
+     */
+    private int readLine(BufferedReader reader, StringBuilder line) throws IOException {
+        line.setLength(0);
+        int c;
+        while ((c = reader.read()) >= 0 && c != '\n') {
+            if (line.length() == MAX_LINE_LENGTH) {
+                return -1;
+            }
+            line.append((char) c);
+        }
+        if (c < 0 && line.length() == 0) {
+            return 0;
+        }
+        int length = line.length();
+        if (length > 0 && line.charAt(length - 1) == '\r') {
+            line.setLength(length - 1);
+        }
+        return 1;
+    }
+
+    /**
+     * It answers a query:
+     * 'contains n1 n2 ...' gets a character per number: '1' if it has been received, '0' if it hasn't, or '?' if it
+     * belongs to another node of the cluster. A number received may not have been written to the log file yet.
+     * 'total' gets the unique numbers received since the server started.
+     * 'window' gets the unique numbers, duplicates and invalid lines received since the last report, as printed by it.
+     * @param line Query sent by the client
+     * @return Answer, or a line starting with 'error' if the query isn't valid
+     */
+    String query(String line) {
+        String[] words = StringUtils.split(line, ' ');
+        if (words.length == 0) {
+            return "error empty query";
+        }
+        if (CONTAINS_QUERY.equals(words[0])) {
+            return contains(words);
+        } else if (TOTAL_QUERY.equals(words[0]) && words.length == 1) {
+            return String.valueOf(logFileTask.getMetrics().getUniqueNumbers());
+        } else if (WINDOW_QUERY.equals(words[0]) && words.length == 1) {
+            ServerMetrics metrics = logFileTask.getMetrics();
+            return "unique " + (metrics.getUniqueNumbers() - logFileTask.getReportedUniqueNumbers())
+                    + " duplicates " + (metrics.getDuplicatedNumbers() - logFileTask.getReportedDuplicatedNumbers())
+                    + " invalid " + (metrics.getInvalidLines() - logFileTask.getReportedInvalidLines());
+        }
+        return "error unknown query";
+    }
+
+    /**
+     * It checks every number of a 'contains' query
+     * @param words Words of the query, the first of which is 'contains'
+     * @return A character per number, or an error if any of them isn't a number of up to 9 digits or there are more
+     * numbers than the limit
+     */
+    private String contains(String[] words) {
+        if (words.length - 1 > MAX_CONTAINS_NUMBERS) {
+            return "error more than " + MAX_CONTAINS_NUMBERS + " numbers";
+        }
+        Cluster cluster = logFileTask.getCluster();
+        StringBuilder answer = new StringBuilder(words.length - 1);
+        for (int i = 1; i < words.length; i++) {
+            if (words[i].length() > DIGITS_INPUT_SIZE || !NumberUtils.isDigits(words[i])) {
+                return "error invalid number " + words[i];
+            }
+            int number = Integer.parseInt(words[i]);
+            if (cluster != null && !cluster.owns(number)) {
+                answer.append('?');
+            } else {
+                answer.append(logFileTask.isReceived(number) ? '1' : '0');
+            }
+        }
+        return answer.toString();
+    }
+
+    /**
+     * It stops accepting query clients and disconnects those connected
+     */
+    public void close() {
+        closed = true;
+        closeQuietly(serverSocket);
+        for (Socket connection : connections) {
+            closeQuietly(connection);
+        }
+    }
+
+    private void closeQuietly(Closeable closeable) {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            System.out.println("Error while closing a query connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Get serverSocket
+     */
+    public ServerSocket getServerSocket() {
+        return serverSocket;
+    }
+}
@@ -0,0 +1,154 @@
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+public class SelectorConnection {
+
+    private final SocketChannel channel;
+    private final SelectorEngine engine;
+    private final LogFileTask logFileTask;
+    private InputParser parser;
+    private final ClientMetrics clientMetrics;
+    private final ClientCredits credits;
+    private ClientAcks acks;
+    private ByteBuffer pendingInput;
+    private boolean closed;
+
+    /**
+     * Constructor to create the state kept by an event loop for a client connected in non-blocking mode
+     * @param channel Client channel obtained when it connects to the server
+     * @param engine Engine which owns the connection, used when the 'terminate' keyword is received
+     * @param logFileTask LogFileTask to submit all numbers which meet the conditions to be saved in the file
+     */
+    public SelectorConnection(SocketChannel channel, SelectorEngine engine, LogFileTask logFileTask) {
+        this.channel = channel;
+        this.engine = engine;
+        this.logFileTask = logFileTask;
+        parser = new LineParser();
+        clientMetrics = logFileTask.getMetrics().openClient(String.valueOf(channel.socket().getRemoteSocketAddress()));
+        credits = logFileTask.openCredits(channel.socket().getInetAddress().getHostAddress());
+        clientMetrics.setCredits(credits);
+    }
+
+    /**
+     * It processes the bytes read from the client. Partial lines and frames are kept until the next read, so the
+     * same rules as in ClientHandler, including the switch to the binary protocol and the acks, are applied regardless
+     * of how the input is split between reads. Once the client has used all of its credits, the rest of the bytes are
+     * kept as pending input instead of waiting for the writers, so the event loop isn't blocked by a single client.
+     * @param buffer Buffer ready to be read which contains the last bytes received
+     * @return True if the connection must be kept open, false if it must be closed
+     * @throws InterruptedException If the thread is interrupted while waiting for space in the ring buffer
+     */
+    public boolean process(ByteBuffer buffer) throws InterruptedException {
+        return process(buffer, true);
+    }
+
+    /**
+     * It processes the input kept when the client ran out of credits, which may be kept again if it runs out of them
+     * before the end. It must only be called when the client has credits.
+     * @return True if the connection must be kept open, false if it must be closed
+     * @throws InterruptedException If the thread is interrupted while waiting for space in the ring buffer
+     */
+    public boolean processPendingInput() throws InterruptedException {
+        return process(pendingInput, true);
+    }
+
+    /**
+     * It processes the input kept when the client ran out of credits waiting for them as long as needed, since the
+     * client is being disconnected and the numbers already read from it must not be lost
+     * @return True if the connection must be kept open, false if it must be closed
+     * @throws InterruptedException If the thread is interrupted while waiting for space in the ring buffer or for
+     * credits
+     */
+    public boolean finishPendingInput() throws InterruptedException {
+        return closed || !hasPendingInput() || process(pendingInput, false);
+    }
+
+    private boolean process(ByteBuffer buffer, boolean yieldWithoutCredits) throws InterruptedException {
+        int numbers = 0;
+        try {
+            while (buffer.hasRemaining()) {
+                int clientInput = parser.feed(buffer.get());
+                if (clientInput >= 0) {
+                    logFileTask.submit(clientInput, credits, acks);
+                    numbers++;
+                    if (yieldWithoutCredits && buffer.hasRemaining() && !hasCredits()) {
+                        keepPendingInput(buffer);
+                        return true;
+                    }
+                } else if (clientInput == LineParser.TERMINATE) {
+                    System.out.println("Found 'terminate' keyword");
+                    engine.terminate();
+                    return false;
+                } else if (clientInput == LineParser.BINARY) {
+                    parser = new BinaryFrameParser();
+                } else if (clientInput == LineParser.ACKS && logFileTask.acceptsAcks()) {
+                    acks = logFileTask.getAckSender().open(channel, false);
+                } else if (clientInput == LineParser.INVALID || clientInput == LineParser.ACKS) {
+                    logFileTask.getMetrics().countInvalidLine();
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            clientMetrics.addNumbers(numbers);
+            if (acks != null) {
+                acks.mark(numbers);
+            }
+        }
+    }
+
+    /**
+     * It keeps the bytes of a buffer which haven't been processed yet, so they are processed before anything else is
+     * read from the client
+     * @param buffer Buffer with the bytes which haven't been processed
+     */
+    private void keepPendingInput(ByteBuffer buffer) {
+        if (buffer == pendingInput) {
+            return;
+        }
+        if (pendingInput == null || pendingInput.capacity() < buffer.remaining()) {
+            pendingInput = ByteBuffer.allocate(buffer.capacity());
+        }
+        pendingInput.clear();
+        pendingInput.put(buffer).flip();
+    }
+
+    /**
+     * It tells whether some bytes read from the client are waiting for credits to be processed
+     * @return True if there is pending input
+     */
+    public boolean hasPendingInput() {
+        return pendingInput != null && pendingInput.hasRemaining();
+    }
+
+    /**
+     * It tells whether the client can queue another number without waiting for the writers
+     * @return True if the client has credits left or isn't limited
+     */
+    public boolean hasCredits() {
+        return credits == null || credits.tryAcquire();
+    }
+
+    /**
+     * It marks the connection as closed and stops tracking its counters
+     * @return True if the connection was open, so the caller is the only one releasing its resources
+     */
+    public boolean markClosed() {
+        if (closed) {
+            return false;
+        }
+        closed = true;
+        if (acks != null) {
+            logFileTask.getAckSender().close(acks);
+        }
+        logFileTask.getMetrics().closeClient(clientMetrics);
+        return true;
+    }
+
+    /**
+     * Get channel
+     */
+    public SocketChannel getChannel() {
+        return channel;
+    }
+}
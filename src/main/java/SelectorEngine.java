@@ -0,0 +1,406 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+public class SelectorEngine {
+
+    private static final int POOLED_BUFFERS_PER_LOOP = 2;
+    private static final int STARVED_POLL_MILLIS = 1;
+
+    private final ListenerGroup listeners;
+    private final ExecutorService threadPool;
+    private final LogFileTask logFileTask;
+    private final FlowControl flowControl;
+    private final Semaphore serverAccess;
+    private final ByteBufferPool bufferPool;
+    private final Acceptor[] acceptors;
+    private final List<Runnable> terminateListeners;
+    private volatile boolean terminated;
+
+    /**
+     * Constructor to create an engine which handles every client in non-blocking mode. Every server channel has its
+     * own acceptor and its own event loops, so connection storms are spread over several acceptors, while the
+     * semaphore still limits the clients connected through all of them.
+     * @param listeners Server channels already bound to their ports
+     * @param threadPool Thread pool with one thread per event loop, plus one per acceptor except the first one
+     * @param logFileTask LogFileTask to submit all numbers which meet the conditions to be saved in the file
+     * @param serverAccess Semaphore which limits the number of concurrent clients
+     * @param options Options which set the number of event loops per acceptor and the size of the read buffers
+     */
+    public SelectorEngine(ListenerGroup listeners, ExecutorService threadPool,
+                          LogFileTask logFileTask, Semaphore serverAccess, ServerOptions options) throws IOException {
+        this.listeners = listeners;
+        this.threadPool = threadPool;
+        this.logFileTask = logFileTask;
+        flowControl = logFileTask.getFlowControl();
+        this.serverAccess = serverAccess;
+        List<ServerSocketChannel> serverChannels = listeners.getChannels();
+        bufferPool = new ByteBufferPool(options.getReadBufferSize(),
+                serverChannels.size() * options.getSelectorThreads() * POOLED_BUFFERS_PER_LOOP);
+        acceptors = new Acceptor[serverChannels.size()];
+        for (int i = 0; i < acceptors.length; i++) {
+            acceptors[i] = new Acceptor(serverChannels.get(i), options.getSelectorThreads());
+        }
+        terminateListeners = new CopyOnWriteArrayList<>();
+        flowControl.addResumeListener(this::wakeUpEventLoops);
+    }
+
+    /**
+     * It starts the event loops and the acceptors, and accepts clients until the 'terminate' keyword is received. The
+     * first acceptor runs on the thread calling this method and the rest of them on the thread pool. It returns once
+     * the engine is terminated, without waiting for the event loops, which are still disconnecting their clients and
+     * finishing the numbers they have read until the thread pool terminates.
+     */
+    public void run() throws IOException {
+        for (Acceptor acceptor : acceptors) {
+            for (EventLoop eventLoop : acceptor.eventLoops) {
+                threadPool.execute(eventLoop);
+            }
+        }
+        for (int i = 1; i < acceptors.length; i++) {
+            threadPool.execute(acceptors[i]);
+        }
+        try {
+            acceptors[0].accept();
+        } finally {
+            terminate();
+        }
+    }
+
+    /**
+     * It stops accepting clients and wakes up every acceptor and event loop, so all of them disconnect their clients
+     * and finish, and then it runs the terminate listeners. It doesn't wait for them, so it can be called from any of
+     * them.
+     */
+    public void terminate() {
+        if (terminated) {
+            return;
+        }
+        terminated = true;
+        listeners.close();
+        wakeUpAcceptors();
+        wakeUpEventLoops();
+        threadPool.shutdown();
+        for (Runnable listener : terminateListeners) {
+            listener.run();
+        }
+    }
+
+    /**
+     * It registers an action which is run when the engine is terminated, either by a client which sends the
+     * 'terminate' keyword or by the server
+     * @param listener Action to be run when the engine is terminated. It must not block.
+     */
+    public void addTerminateListener(Runnable listener) {
+        terminateListeners.add(listener);
+    }
+
+    /**
+     * It wakes up every acceptor, so those which had no permit available check again whether they can accept clients
+     */
+    private void wakeUpAcceptors() {
+        for (Acceptor acceptor : acceptors) {
+            acceptor.selector.wakeup();
+        }
+    }
+
+    private void wakeUpEventLoops() {
+        for (Acceptor acceptor : acceptors) {
+            for (EventLoop eventLoop : acceptor.eventLoops) {
+                eventLoop.selector.wakeup();
+            }
+        }
+    }
+
+    /**
+     * Acceptor which takes the clients of a single server channel and hands them to its own event loops
+     */
+    private class Acceptor implements Runnable {
+
+        private final ServerSocketChannel serverChannel;
+        private final Selector selector;
+        private final EventLoop[] eventLoops;
+        private int nextEventLoop;
+
+        private Acceptor(ServerSocketChannel serverChannel, int eventLoopCount) throws IOException {
+            this.serverChannel = serverChannel;
+            selector = Selector.open();
+            eventLoops = new EventLoop[eventLoopCount];
+            for (int i = 0; i < eventLoops.length; i++) {
+                eventLoops[i] = new EventLoop(Selector.open());
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                accept();
+            } catch (IOException e) {
+                System.out.println("Exception while accepting clients on " + Thread.currentThread().getName() + ": " + e.getMessage());
+            }
+        }
+
+        /**
+         * It accepts clients until the engine is terminated. A client is only accepted when the semaphore has a permit
+         * available, otherwise the interest in new connections is removed until a client of any acceptor leaves.
+         */
+        private void accept() throws IOException {
+            try {
+                serverChannel.configureBlocking(false);
+                SelectionKey acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+                while (!terminated && !Thread.interrupted()) {
+                    acceptKey.interestOps(serverAccess.availablePermits() > 0 ? SelectionKey.OP_ACCEPT : 0);
+                    selector.select();
+                    selector.selectedKeys().clear();
+                    acceptPendingClients();
+                }
+            } finally {
+                terminate();
+                selector.close();
+            }
+        }
+
+        /**
+         * It accepts every pending client while there are permits available, and assigns them to the event loops in
+         * round-robin order
+         */
+        private void acceptPendingClients() throws IOException {
+            while (!terminated && serverAccess.tryAcquire()) {
+                SocketChannel clientChannel = serverChannel.accept();
+                if (clientChannel == null) {
+                    serverAccess.release();
+                    return;
+                }
+                System.out.println("Connected client: " + clientChannel.socket().getInetAddress());
+                eventLoops[nextEventLoop].register(clientChannel);
+                nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+            }
+        }
+    }
+
+    /**
+     * Event loop which reads from every client registered in its selector
+     */
+    private class EventLoop implements Runnable {
+
+        private final Selector selector;
+        private final Queue<SocketChannel> pendingChannels;
+        private final List<SelectionKey> starvedKeys;
+        private boolean readsPaused;
+
+        private EventLoop(Selector selector) {
+            this.selector = selector;
+            pendingChannels = new ConcurrentLinkedQueue<>();
+            starvedKeys = new ArrayList<>();
+        }
+
+        /**
+         * It hands a client over to this event loop. The registration is done by the event loop itself, since it is
+         * the thread blocked on the selector.
+         * @param clientChannel Channel of the accepted client
+         */
+        private void register(SocketChannel clientChannel) {
+            pendingChannels.add(clientChannel);
+            selector.wakeup();
+        }
+
+        /**
+         * It reads from the clients until the engine is terminated. While the clients are throttled, the interest in
+         * reading is removed from every client, so the event loop sleeps and the bytes wait in the socket buffers until
+         * the writer drains the ring buffer down to the low watermark and wakes the event loop up. A client which has
+         * used all of its credits stops being processed, even in the middle of what has been read from it, and isn't
+         * read until the writers drain its numbers, which is checked every millisecond, so the event loop keeps reading
+         * from the other clients meanwhile and never waits for the credits of a single client.
+         */
+        @Override
+        public void run() {
+            try {
+                while (!terminated && !Thread.currentThread().isInterrupted()) {
+                    updateReadInterest();
+                    resumeStarvedKeys();
+                    if (starvedKeys.isEmpty()) {
+                        selector.select();
+                    } else {
+                        selector.select(STARVED_POLL_MILLIS);
+                    }
+                    registerPendingChannels();
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        if (key.isValid() && key.isReadable() && !flowControl.isThrottled()) {
+                            SelectorConnection connection = (SelectorConnection) key.attachment();
+                            if (connection.hasPendingInput()) { //already starved, read again once its input is processed
+                                key.interestOps(0);
+                            } else if (connection.hasCredits()) {
+                                read(key);
+                            } else {
+                                key.interestOps(0);
+                                starvedKeys.add(key);
+                            }
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.out.println("Exception while running the event loop on " + Thread.currentThread().getName() + ": " + e.getMessage());
+            } finally {
+                closeAll();
+            }
+        }
+
+        /**
+         * It removes the interest in reading from every client when the clients have just been throttled, and restores
+         * it when they have just been resumed
+         */
+        private void updateReadInterest() {
+            boolean throttled = flowControl.isThrottled();
+            if (throttled == readsPaused) {
+                return;
+            }
+            readsPaused = throttled;
+            for (SelectionKey key : selector.keys()) {
+                if (key.isValid()) {
+                    key.interestOps(throttled ? 0 : SelectionKey.OP_READ);
+                }
+            }
+        }
+
+        /**
+         * It restores the interest in reading of the clients which have got credits back since they were starved. The
+         * input kept by a client when it ran out of credits is processed first, and the client stays starved if it runs
+         * out of them again.
+         */
+        private void resumeStarvedKeys() {
+            Iterator<SelectionKey> keys = starvedKeys.iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                SelectorConnection connection = (SelectorConnection) key.attachment();
+                if (!key.isValid()) {
+                    keys.remove();
+                } else if (connection.hasCredits()) {
+                    if (connection.hasPendingInput() && (readsPaused || !processPendingInput(connection))) {
+                        continue;
+                    }
+                    key.interestOps(readsPaused ? 0 : SelectionKey.OP_READ);
+                    keys.remove();
+                }
+            }
+        }
+
+        /**
+         * It processes the input kept by a client when it ran out of credits
+         * @param connection Connection of a starved client which has got credits back
+         * @return True if every byte kept has been processed, false if some of them are still pending or the client
+         * has been disconnected
+         */
+        private boolean processPendingInput(SelectorConnection connection) {
+            try {
+                if (connection.processPendingInput()) {
+                    return !connection.hasPendingInput();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            close(connection);
+            return false;
+        }
+
+        private void registerPendingChannels() throws IOException {
+            SocketChannel clientChannel;
+            while ((clientChannel = pendingChannels.poll()) != null) {
+                SelectorConnection connection = new SelectorConnection(clientChannel, SelectorEngine.this, logFileTask);
+                try {
+                    clientChannel.configureBlocking(false);
+                    clientChannel.register(selector, readsPaused ? 0 : SelectionKey.OP_READ, connection);
+                } catch (IOException e) {
+                    System.out.println("Exception while registering a client: " + e.getMessage());
+                    close(connection);
+                }
+            }
+        }
+
+        /**
+         * It reads every byte available for a client into a pooled buffer and processes it
+         * @param key Key of the client ready to be read
+         */
+        private void read(SelectionKey key) {
+            SelectorConnection connection = (SelectorConnection) key.attachment();
+            ByteBuffer buffer = bufferPool.acquire();
+            try {
+                if (connection.getChannel().read(buffer) < 0) {
+                    close(connection);
+                    return;
+                }
+                buffer.flip();
+                if (!connection.process(buffer)) {
+                    close(connection);
+                } else if (connection.hasPendingInput()) {
+                    key.interestOps(0);
+                    starvedKeys.add(key);
+                }
+            } catch (IOException e) {
+                System.out.println("Exception while managing the client running on " + Thread.currentThread().getName() + ": " + e.getMessage());
+                close(connection);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close(connection);
+            } finally {
+                bufferPool.release(buffer);
+            }
+        }
+
+        /**
+         * It disconnects every client of this event loop, including those which weren't registered yet. The input kept
+         * by the clients which ran out of credits is processed first, so no number read from them is lost.
+         */
+        private void closeAll() {
+            for (SelectionKey key : selector.keys()) {
+                SelectorConnection connection = (SelectorConnection) key.attachment();
+                try {
+                    connection.finishPendingInput();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                close(connection);
+            }
+            SocketChannel clientChannel;
+            while ((clientChannel = pendingChannels.poll()) != null) {
+                close(new SelectorConnection(clientChannel, SelectorEngine.this, logFileTask));
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                System.out.println("Error while closing the selector: " + e.getMessage());
+            }
+        }
+
+        /**
+         * It disconnects a client and releases its access to the server
+         * @param connection Connection to be closed
+         */
+        private void close(SelectorConnection connection) {
+            if (!connection.markClosed()) {
+                return;
+            }
+            try {
+                connection.getChannel().close();
+            } catch (IOException e) {
+                System.out.println("Error while closing a client: " + e.getMessage());
+            }
+            System.out.println("Releasing access to the server");
+            serverAccess.release();
+            wakeUpAcceptors();
+        }
+    }
+}
@@ -1,19 +1,37 @@
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 public class Server {
 
     private static final Integer DEFAULT_MAX_CLIENTS = 5;
     private static final Integer DEFAULT_PORT_NUMBER = 4000;
+    private static final String METRICS_OBJECT_NAME = "ConcurrentServer:type=ServerMetrics,port=";
     private final Integer portNumber;
     private final Integer maxClients;
+    private final ServerOptions options;
 
+    private ListenerGroup listeners;
     private ServerSocket serverSocket;
-    private ThreadPoolExecutor threadPool;
-    private BlockingQueue<String> clientInputsQueue;
+    private List<Thread> acceptorThreads;
+    private volatile SelectorEngine selectorEngine;
+    private QueryServer queryServer;
+    private volatile BulkLoader bulkLoader;
+    private Thread bulkLoaderThread;
+    private ExecutorService threadPool;
+    private Set<Socket> clientSockets;
+    private AtomicBoolean terminating;
+    private volatile long terminateNanos;
+    private volatile long writtenNumbersAtTerminate;
+    private volatile long shutdownMillis;
+    private volatile long drainedNumbers;
+    private IntRingBuffer clientInputsQueue;
     private Semaphore serverAccess;
     private LogFileTask logFileTask;
 
@@ -24,6 +42,7 @@ public class Server {
     public Server() {
         maxClients = DEFAULT_MAX_CLIENTS;
         portNumber = DEFAULT_PORT_NUMBER;
+        options = ServerOptions.fromSystemProperties();
         commonInitialization();
     }
 
@@ -34,8 +53,20 @@ public class Server {
      * @param maxClients Maximum number of concurrent clients.
      */
     public Server(int portNumber, int maxClients) {
+        this(portNumber, maxClients, ServerOptions.fromSystemProperties());
+    }
+
+    /**
+     * Constructor to be used when the options must be given explicitly instead of being read from system properties
+     *
+     * @param portNumber Socket's port number.
+     * @param maxClients Maximum number of concurrent clients.
+     * @param options Options which select how the server handles its clients.
+     */
+    public Server(int portNumber, int maxClients, ServerOptions options) {
         this.maxClients = maxClients;
         this.portNumber = portNumber;
+        this.options = options;
         commonInitialization();
     }
 
@@ -43,28 +74,35 @@ public class Server {
      * Initialization that must be done for both constructors
      */
     private void commonInitialization() {
-        clientInputsQueue = new LinkedBlockingQueue<>();
+        clientInputsQueue = new IntRingBuffer(options.getQueueCapacity());
         serverAccess = new Semaphore(maxClients);
-        logFileTask = new LogFileTask(clientInputsQueue);
-        threadPool = (ThreadPoolExecutor) Executors.newFixedThreadPool(maxClients);
+        logFileTask = new LogFileTask(clientInputsQueue, options);
+        acceptorThreads = new ArrayList<>();
+        clientSockets = ConcurrentHashMap.newKeySet();
+        terminating = new AtomicBoolean();
+        if (options.getConnectionMode() == ConnectionMode.SELECTOR) {
+            int acceptors = ports(portNumber, options).size() * options.getAcceptors();
+            threadPool = Executors.newFixedThreadPool(acceptors * (options.getSelectorThreads() + 1));
+        } else if (options.getConnectionMode() == ConnectionMode.VIRTUAL_THREADS) {
+            threadPool = Executors.newVirtualThreadPerTaskExecutor();
+        } else {
+            threadPool = Executors.newFixedThreadPool(maxClients);
+        }
     }
 
     /**
      * Start running the server by creating a ServerSocket instance, using the specified port number, and handling a
-     * semaphore and a thread pool to keep the desired concurrent clients running.
+     * semaphore and a thread pool to keep the desired concurrent clients running. The metrics of the server are
+     * published through JMX while it runs. It returns once the server has been terminated and every number accepted
+     * has been written.
      */
     public void run() {
+        logFileTask.getMetrics().register(METRICS_OBJECT_NAME + portNumber);
         try {
-            serverSocket = new ServerSocket(portNumber);
-            logFileTask.run();
-
-            while (!Thread.interrupted()) {
-                serverAccess.acquire();
-                Socket clientSocket = serverSocket.accept();
-
-                System.out.println("Connected client: " + clientSocket.getInetAddress());
-
-                threadPool.execute(new ClientHandler(clientSocket, serverSocket, threadPool, clientInputsQueue, serverAccess));
+            if (options.getConnectionMode() == ConnectionMode.SELECTOR) {
+                runSelectorEngine();
+            } else {
+                runThreadPerClient();
             }
             // InterruptedException is thrown when there are clients waiting on the semaphore, and the thread has been interrupted
             // IOException for the create and accept methods of the socket
@@ -73,13 +111,234 @@ public class Server {
                 System.out.println("Unexpected error: " + e.getMessage());
             }
         } finally {
-            logFileTask.close();
-            System.out.println("Server is shutdown: " + threadPool.isShutdown());
-            System.out.println("Server is terminated: " + threadPool.isTerminated());
-            System.out.println("Server is terminating: " + threadPool.isTerminating());
+            shutdown();
+        }
+    }
+
+    /**
+     * It drains the server once it has been terminated, in an order which doesn't rely on timeouts: it waits for every
+     * client, acceptor and the bulk load to stop, so nothing else is submitted, and then it closes the LogFileTask,
+     * whose writers commit every number left in their queues before stopping. The time since 'terminate' and the
+     * numbers written meanwhile are reported. Only the links of a cluster are bounded by a timeout, since a peer which
+     * can't be reached would hold the shutdown back forever.
+     */
+    private void shutdown() {
+        terminate();
+        try {
+            threadPool.close();
+            for (Thread acceptorThread : acceptorThreads) {
+                acceptorThread.join();
+            }
+            if (bulkLoaderThread != null) {
+                bulkLoaderThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (queryServer != null) {
+            queryServer.close();
+        }
+        if (logFileTask.getCluster() != null && !logFileTask.getCluster().close()) {
+            logFileTask.markIncomplete();
+        }
+        logFileTask.close();
+        logFileTask.getMetrics().unregister();
+        drainedNumbers = logFileTask.getWrittenNumbers() - writtenNumbersAtTerminate;
+        shutdownMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - terminateNanos);
+        System.out.println("Server has shut down in " + shutdownMillis + " ms. " + drainedNumbers
+                + " numbers have been drained to the log file since 'terminate'");
+    }
+
+    /**
+     * It binds a server socket per acceptor and runs an acceptor thread for each of them. The first acceptor runs on
+     * the thread calling this method.
+     */
+    private void runThreadPerClient() throws InterruptedException, IOException {
+        listeners = ListenerGroup.bindSockets(getPorts(), options.getAcceptors());
+        serverSocket = listeners.getSockets().get(0);
+        logFileTask.run();
+
+        List<ServerSocket> sockets = listeners.getSockets();
+        for (int i = 1; i < sockets.size(); i++) {
+            ServerSocket socket = sockets.get(i);
+            acceptorThreads.add(Thread.ofPlatform().name("acceptor-" + i).start(() -> acceptClientsUntilClosed(socket)));
+        }
+        startCluster();
+        startQueryServer();
+        startBulkLoad();
+        if (!terminating.get()) {
+            acceptClients(serverSocket);
+        }
+    }
+
+    /**
+     * It runs an acceptor on its own thread until the server socket is closed
+     * @param socket Server socket of the acceptor
+     */
+    private void acceptClientsUntilClosed(ServerSocket socket) {
+        try {
+            acceptClients(socket);
+        } catch (InterruptedException | IOException e) {
+            if (!socket.isClosed()) {
+                System.out.println("Unexpected error: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * It accepts clients sequentially and hands each of them to a ClientHandler running on its own thread, either a
+     * platform thread of the pool or a virtual thread. A client is accepted before waiting for a permit, so no acceptor
+     * holds a permit while its socket has no connections and clients of other acceptors are waiting for one. The
+     * socket of every client is kept until it leaves, so all of them can be closed at once by terminate.
+     * @param socket Server socket of the acceptor
+     */
+    private void acceptClients(ServerSocket socket) throws InterruptedException, IOException {
+        while (!Thread.interrupted()) {
+            Socket clientSocket = socket.accept();
+            try {
+                serverAccess.acquire();
+            } catch (InterruptedException e) {
+                clientSocket.close();
+                throw e;
+            }
+
+            System.out.println("Connected client: " + clientSocket.getInetAddress());
+
+            ClientHandler clientHandler = new ClientHandler(clientSocket, this::terminate, logFileTask, serverAccess,
+                    options.getConnectionMode() == ConnectionMode.VIRTUAL_THREADS);
+            clientSockets.add(clientSocket);
+            try {
+                threadPool.execute(() -> {
+                    try {
+                        clientHandler.run();
+                    } finally {
+                        clientSockets.remove(clientSocket);
+                    }
+                });
+            } catch (RejectedExecutionException e) { // 'terminate' has been received by another client
+                clientSockets.remove(clientSocket);
+                clientSocket.close();
+                serverAccess.release();
+                return;
+            }
+        }
+    }
+
+    /**
+     * It binds a server channel per acceptor and lets a SelectorEngine handle every client on a few event loops per
+     * acceptor
+     */
+    private void runSelectorEngine() throws IOException {
+        listeners = ListenerGroup.bindChannels(getPorts(), options.getAcceptors());
+        serverSocket = listeners.getSockets().get(0);
+        logFileTask.run();
+
+        selectorEngine = new SelectorEngine(listeners, threadPool, logFileTask, serverAccess, options);
+        selectorEngine.addTerminateListener(this::terminate);
+        if (terminating.get()) {
+            selectorEngine.terminate();
+        }
+        startCluster();
+        startQueryServer();
+        startBulkLoad();
+        selectorEngine.run();
+    }
+
+    /**
+     * It connects this server to the rest of the cluster, if it belongs to one, once it is ready to shut down when a
+     * peer asks for it
+     */
+    private void startCluster() throws IOException {
+        if (logFileTask.getCluster() != null) {
+            logFileTask.getCluster().start(logFileTask, this::terminate);
+        }
+    }
+
+    /**
+     * It starts answering queries on the query port, if one has been given
+     */
+    private void startQueryServer() throws IOException {
+        if (options.getQueryPort() > 0) {
+            queryServer = new QueryServer(options.getQueryPort(), logFileTask);
+            queryServer.start();
+        }
+    }
+
+    /**
+     * It loads the files given in the options on their own thread, if any, while the clients are accepted as usual
+     */
+    private void startBulkLoad() {
+        if (options.getBulkFiles().isEmpty()) {
+            return;
+        }
+        bulkLoader = new BulkLoader(logFileTask, options.getBulkParallelism());
+        bulkLoaderThread = Thread.ofPlatform().name("bulk-loader").daemon(true).start(() -> {
+            try {
+                bulkLoader.load(options.getBulkFiles());
+            } catch (IOException e) {
+                System.out.println("Error while loading files: " + e.getMessage());
+            } catch (InterruptedException e) {
+                System.out.println("Bulk load has been interrupted");
+            }
+        });
+        if (terminating.get()) {
+            bulkLoader.cancel();
+        }
+    }
+
+    /**
+     * It starts shutting the server down, as when a client sends the 'terminate' keyword: it stops accepting clients,
+     * disconnects all of them at once and cancels the bulk load. It doesn't wait for anything, so it can be called from
+     * any thread, including those of the clients and of the cluster, while the thread running the server drains every
+     * number already accepted and returns.
+     */
+    public void terminate() {
+        if (!terminating.compareAndSet(false, true)) {
+            return;
+        }
+        terminateNanos = System.nanoTime();
+        writtenNumbersAtTerminate = logFileTask.getWrittenNumbers();
+        System.out.println("Shutting down the server");
+        if (bulkLoader != null) {
+            bulkLoader.cancel();
+        }
+        if (selectorEngine != null) {
+            selectorEngine.terminate();
+            return;
+        }
+        threadPool.shutdown();
+        if (listeners != null) {
+            listeners.close();
+        }
+        for (Socket clientSocket : clientSockets) {
+            try {
+                clientSocket.close();
+            } catch (IOException e) {
+                System.out.println("Error while closing a client: " + e.getMessage());
+            }
         }
     }
 
+    /**
+     * It lists the ports where the server accepts clients
+     * @param portNumber Port given to the constructor
+     * @param options Options which may give extra ports
+     * @return The port given to the constructor followed by the extra ports of the options
+     */
+    private static List<Integer> ports(int portNumber, ServerOptions options) {
+        List<Integer> ports = new ArrayList<>();
+        ports.add(portNumber);
+        ports.addAll(options.getExtraPorts());
+        return ports;
+    }
+
+    /**
+     * Get the port given to the constructor followed by the extra ports of the options
+     */
+    public List<Integer> getPorts() {
+        return ports(portNumber, options);
+    }
+
     /**
      * Get Port Number
      */
@@ -94,6 +353,13 @@ public class Server {
         return maxClients;
     }
 
+    /**
+     * Get options
+     */
+    public ServerOptions getOptions() {
+        return options;
+    }
+
     /**
      * Get serverSocket
      */
@@ -104,10 +370,31 @@ public class Server {
     /**
      * Get threadPool
      */
-    public ThreadPoolExecutor getThreadPool() {
+    public ExecutorService getThreadPool() {
         return threadPool;
     }
 
+    /**
+     * Get logFileTask
+     */
+    public LogFileTask getLogFileTask() {
+        return logFileTask;
+    }
+
+    /**
+     * Get the time, in milliseconds, from 'terminate' until every accepted number was written
+     */
+    public long getShutdownMillis() {
+        return shutdownMillis;
+    }
+
+    /**
+     * Get the numbers written to the log file from 'terminate' until the server stopped
+     */
+    public long getDrainedNumbers() {
+        return drainedNumbers;
+    }
+
     /**
      * Get serverAccess
      */
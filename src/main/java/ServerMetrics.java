@@ -0,0 +1,298 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class ServerMetrics implements ServerMetricsMBean {
+
+    // One of every 64 unique numbers is timestamped to measure the receive-to-persist latency
+    private static final int SAMPLE_INTERVAL_BITS = 6;
+    private static final long SAMPLE_INTERVAL_MASK = (1L << SAMPLE_INTERVAL_BITS) - 1;
+    private static final long EMPTY_SAMPLE = -1;
+
+    private final List<IntRingBuffer> queues;
+    private final FlowControl flowControl;
+    private final LongAdder acceptedConnections;
+    private final LongAdder uniqueNumbers;
+    private final LongAdder duplicatedNumbers;
+    private final LongAdder invalidLines;
+    private final Set<ClientMetrics> clients;
+    private final Histogram writerBatchSizes;
+    private final Histogram persistLatencyNanos;
+    private final AtomicLongArray sampleSequences;
+    private final AtomicLongArray sampleNanos;
+    private final int sampleSlotMask;
+    private long committedSequence;
+    private ObjectName objectName;
+
+    /**
+     * Constructor to create the metrics of the server. Every counter is updated without locks, and the most frequent
+     * updates use LongAdder, so recording them doesn't make the clients contend with each other.
+     * @param queue Ring buffer between the clients and the log file writer, whose sequence numbers identify the samples
+     * @param flowControl Backpressure applied to the clients
+     * @param maxNumbersInFlight Maximum number of unique numbers which can be waiting for a commit at the same time, so
+     *                           every sample is kept until its number has been committed
+     */
+    public ServerMetrics(IntRingBuffer queue, FlowControl flowControl, int maxNumbersInFlight) {
+        this(Collections.singletonList(queue), flowControl, maxNumbersInFlight);
+    }
+
+    /**
+     * Constructor to create the metrics of a server whose log file is written by several partitions. Only the numbers
+     * of the first ring buffer are sampled to measure the persist latency, since the sequences of different buffers
+     * can't share the samples.
+     * @param queues Ring buffers between the clients and the writers of the partitions
+     * @param flowControl Backpressure applied to the clients
+     * @param maxNumbersInFlight Maximum number of unique numbers which can be waiting for a commit in the first buffer
+     */
+    public ServerMetrics(List<IntRingBuffer> queues, FlowControl flowControl, int maxNumbersInFlight) {
+        this.queues = queues;
+        this.flowControl = flowControl;
+        acceptedConnections = new LongAdder();
+        uniqueNumbers = new LongAdder();
+        duplicatedNumbers = new LongAdder();
+        invalidLines = new LongAdder();
+        clients = ConcurrentHashMap.newKeySet();
+        writerBatchSizes = new Histogram();
+        persistLatencyNanos = new Histogram();
+        int sampleSlots = Integer.highestOneBit(Math.max(1, (maxNumbersInFlight >> SAMPLE_INTERVAL_BITS) + 1)) << 1;
+        sampleSlotMask = sampleSlots - 1;
+        sampleSequences = new AtomicLongArray(sampleSlots);
+        sampleNanos = new AtomicLongArray(sampleSlots);
+        for (int i = 0; i < sampleSlots; i++) {
+            sampleSequences.set(i, EMPTY_SAMPLE);
+        }
+    }
+
+    /**
+     * It publishes the metrics through the platform MBean server. A failure doesn't stop the server, since the
+     * metrics are still printed by the reports.
+     * @param name Object name under which the metrics are published
+     */
+    public void register(String name) {
+        try {
+            MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+            ObjectName candidate = new ObjectName(name);
+            mBeanServer.registerMBean(this, candidate);
+            objectName = candidate;
+        } catch (JMException e) {
+            System.out.println("Metrics couldn't be published through JMX: " + e.getMessage());
+        }
+    }
+
+    /**
+     * It removes the metrics from the platform MBean server if they were published
+     */
+    public void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException e) {
+            System.out.println("Error while removing the metrics from JMX: " + e.getMessage());
+        }
+        objectName = null;
+    }
+
+    /**
+     * It counts a new client and starts tracking its counters
+     * @param name Name which identifies the client
+     * @return Counters of the client, which must be given back to closeClient when it disconnects
+     */
+    public ClientMetrics openClient(String name) {
+        ClientMetrics client = new ClientMetrics(name);
+        acceptedConnections.increment();
+        clients.add(client);
+        return client;
+    }
+
+    /**
+     * It stops tracking the counters of a disconnected client
+     * @param client Counters returned by openClient
+     */
+    public void closeClient(ClientMetrics client) {
+        clients.remove(client);
+    }
+
+    /**
+     * It counts a unique number which doesn't go through the ring buffer, so its persist latency isn't sampled
+     */
+    public void countUnique() {
+        uniqueNumbers.increment();
+    }
+
+    /**
+     * It counts a unique number, and timestamps it if its sequence in the ring buffer is sampled
+     * @param sequence Sequence of the number in the ring buffer
+     */
+    public void countUnique(long sequence) {
+        uniqueNumbers.increment();
+        if ((sequence & SAMPLE_INTERVAL_MASK) == 0) {
+            int slot = (int) (sequence >>> SAMPLE_INTERVAL_BITS) & sampleSlotMask;
+            sampleSequences.set(slot, EMPTY_SAMPLE);
+            sampleNanos.set(slot, System.nanoTime());
+            sampleSequences.set(slot, sequence);
+        }
+    }
+
+    /**
+     * It counts a duplicated number
+     */
+    public void countDuplicate() {
+        duplicatedNumbers.increment();
+    }
+
+    /**
+     * It counts a line which wasn't a valid number nor the 'terminate' keyword
+     */
+    public void countInvalidLine() {
+        invalidLines.increment();
+    }
+
+    /**
+     * It records a group commit of a writer whose numbers aren't sampled. It can be called by many writers at the same
+     * time.
+     * @param batchSize Number of numbers committed
+     */
+    public void recordCommit(int batchSize) {
+        writerBatchSizes.record(batchSize);
+    }
+
+    /**
+     * It records a group commit, and the latency of every sampled number it contains. It must only be called by the
+     * writer thread.
+     * @param batchSize Number of numbers committed
+     * @param drainedNumbers Number of numbers taken from the ring buffer since the start, which is the sequence of the
+     *                       first number which hasn't been committed yet
+     */
+    public void recordCommit(int batchSize, long drainedNumbers) {
+        writerBatchSizes.record(batchSize);
+        long now = System.nanoTime();
+        long sequence = (committedSequence + SAMPLE_INTERVAL_MASK) & ~SAMPLE_INTERVAL_MASK;
+        for (; sequence < drainedNumbers; sequence += SAMPLE_INTERVAL_MASK + 1) {
+            int slot = (int) (sequence >>> SAMPLE_INTERVAL_BITS) & sampleSlotMask;
+            if (sampleSequences.get(slot) == sequence) {
+                long startNanos = sampleNanos.get(slot);
+                if (sampleSequences.get(slot) == sequence) {
+                    persistLatencyNanos.record(now - startNanos);
+                }
+            }
+        }
+        committedSequence = drainedNumbers;
+    }
+
+    @Override
+    public long getAcceptedConnections() {
+        return acceptedConnections.sum();
+    }
+
+    @Override
+    public int getActiveConnections() {
+        return clients.size();
+    }
+
+    @Override
+    public long getUniqueNumbers() {
+        return uniqueNumbers.sum();
+    }
+
+    @Override
+    public long getDuplicatedNumbers() {
+        return duplicatedNumbers.sum();
+    }
+
+    @Override
+    public long getInvalidLines() {
+        return invalidLines.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        int depth = 0;
+        for (IntRingBuffer queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        int capacity = 0;
+        for (IntRingBuffer queue : queues) {
+            capacity += queue.getCapacity();
+        }
+        return capacity;
+    }
+
+    @Override
+    public long getThrottledMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(flowControl.getThrottledNanosTotal());
+    }
+
+    @Override
+    public long getThrottleEvents() {
+        return flowControl.getThrottleEventsTotal();
+    }
+
+    @Override
+    public long getWriterCommits() {
+        return writerBatchSizes.getCount();
+    }
+
+    @Override
+    public double getWriterMeanBatchSize() {
+        return writerBatchSizes.getMean();
+    }
+
+    @Override
+    public long getWriterMaxBatchSize() {
+        return writerBatchSizes.getMax();
+    }
+
+    @Override
+    public long getPersistLatencyP50Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(persistLatencyNanos.getPercentile(50));
+    }
+
+    @Override
+    public long getPersistLatencyP99Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(persistLatencyNanos.getPercentile(99));
+    }
+
+    @Override
+    public long getPersistLatencyP999Micros() {
+        return TimeUnit.NANOSECONDS.toMicros(persistLatencyNanos.getPercentile(99.9));
+    }
+
+    @Override
+    public long getPersistLatencyMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(persistLatencyNanos.getMax());
+    }
+
+    @Override
+    public String[] getClients() {
+        return clients.stream().map(ClientMetrics::toString).toArray(String[]::new);
+    }
+
+    /**
+     * Get writerBatchSizes
+     */
+    public Histogram getWriterBatchSizes() {
+        return writerBatchSizes;
+    }
+
+    /**
+     * Get persistLatencyNanos
+     */
+    public Histogram getPersistLatencyNanos() {
+        return persistLatencyNanos;
+    }
+}
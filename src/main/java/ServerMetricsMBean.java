@@ -0,0 +1,40 @@
+/**
+ * Attributes published through JMX by ServerMetrics. Latencies are given in microseconds and go from the moment a
+ * unique number is added to the ring buffer to the moment the group commit which contains it has finished.
+ */
+public interface ServerMetricsMBean {
+
+    long getAcceptedConnections();
+
+    int getActiveConnections();
+
+    long getUniqueNumbers();
+
+    long getDuplicatedNumbers();
+
+    long getInvalidLines();
+
+    int getQueueDepth();
+
+    int getQueueCapacity();
+
+    long getThrottledMillis();
+
+    long getThrottleEvents();
+
+    long getWriterCommits();
+
+    double getWriterMeanBatchSize();
+
+    long getWriterMaxBatchSize();
+
+    long getPersistLatencyP50Micros();
+
+    long getPersistLatencyP99Micros();
+
+    long getPersistLatencyP999Micros();
+
+    long getPersistLatencyMaxMicros();
+
+    String[] getClients();
+}
@@ -0,0 +1,647 @@
+import org.apache.commons.lang3.EnumUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ServerOptions {
+
+    private static final String CONNECTION_MODE_PROPERTY = "server.connectionMode";
+    private static final String SELECTOR_THREADS_PROPERTY = "server.selectorThreads";
+    private static final String READ_BUFFER_SIZE_PROPERTY = "server.readBufferSize";
+    private static final String QUEUE_CAPACITY_PROPERTY = "server.queueCapacity";
+    private static final String WRITER_BACKEND_PROPERTY = "server.writer";
+    private static final String WRITER_BATCH_SIZE_PROPERTY = "server.writerBatchSize";
+    private static final String WRITER_LINGER_MILLIS_PROPERTY = "server.writerLingerMillis";
+    private static final String WRITER_FORCE_POLICY_PROPERTY = "server.writerForce";
+    private static final String DEDUP_MODE_PROPERTY = "server.dedup";
+    private static final String DEDUP_INDEX_FILE_PROPERTY = "server.dedupIndexFile";
+    private static final String QUEUE_HIGH_WATERMARK_PROPERTY = "server.queueHighWatermark";
+    private static final String QUEUE_LOW_WATERMARK_PROPERTY = "server.queueLowWatermark";
+    private static final String ACCEPTORS_PROPERTY = "server.acceptors";
+    private static final String EXTRA_PORTS_PROPERTY = "server.extraPorts";
+    private static final String OUTPUT_MODE_PROPERTY = "server.output";
+    private static final String DUMP_INTERVAL_SECONDS_PROPERTY = "server.dumpIntervalSeconds";
+    private static final String LOG_FILE_PROPERTY = "server.logFile";
+    private static final String CLUSTER_NODES_PROPERTY = "server.clusterNodes";
+    private static final String CLUSTER_NODE_INDEX_PROPERTY = "server.clusterNodeIndex";
+    private static final String CLUSTER_SHUTDOWN_SECONDS_PROPERTY = "server.clusterShutdownSeconds";
+    private static final String WRITER_PARTITIONS_PROPERTY = "server.writerPartitions";
+    private static final String QUERY_PORT_PROPERTY = "server.queryPort";
+    private static final String BULK_FILES_PROPERTY = "server.bulkFiles";
+    private static final String BULK_PARALLELISM_PROPERTY = "server.bulkParallelism";
+    private static final String CLIENT_IN_FLIGHT_LIMIT_PROPERTY = "server.clientInFlightLimit";
+    private static final String CLIENT_WEIGHTS_PROPERTY = "server.clientWeights";
+
+    private static final int DEFAULT_SELECTOR_THREADS = 1;
+    private static final int DEFAULT_READ_BUFFER_SIZE = 64 * 1024;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1 << 20;
+    private static final int DEFAULT_WRITER_BATCH_SIZE = 4096;
+    private static final int DEFAULT_WRITER_LINGER_MILLIS = 10;
+    private static final String DEFAULT_DEDUP_INDEX_FILE = "numbers.idx";
+    private static final int DEFAULT_QUEUE_HIGH_WATERMARK = 90;
+    private static final int DEFAULT_QUEUE_LOW_WATERMARK = 50;
+    private static final int DEFAULT_ACCEPTORS = 1;
+    private static final int DEFAULT_DUMP_INTERVAL_SECONDS = 0;
+    private static final String DEFAULT_LOG_FILE = "numbers.log";
+    private static final int DEFAULT_CLUSTER_NODE_INDEX = 0;
+    private static final int DEFAULT_CLUSTER_SHUTDOWN_SECONDS = 30;
+    private static final int DEFAULT_WRITER_PARTITIONS = 1;
+    private static final int DEFAULT_QUERY_PORT = 0;
+    private static final int DEFAULT_BULK_PARALLELISM = 0;
+    private static final int DEFAULT_CLIENT_IN_FLIGHT_LIMIT = 0;
+
+    private ConnectionMode connectionMode;
+    private int selectorThreads;
+    private int readBufferSize;
+    private int queueCapacity;
+    private WriterBackend writerBackend;
+    private int writerBatchSize;
+    private int writerLingerMillis;
+    private ForcePolicy writerForcePolicy;
+    private DedupMode dedupMode;
+    private String dedupIndexFile;
+    private int queueHighWatermark;
+    private int queueLowWatermark;
+    private int acceptors;
+    private List<Integer> extraPorts;
+    private OutputMode outputMode;
+    private int dumpIntervalSeconds;
+    private String logFile;
+    private List<InetSocketAddress> clusterNodes;
+    private int clusterNodeIndex;
+    private int clusterShutdownSeconds;
+    private int writerPartitions;
+    private int queryPort;
+    private List<String> bulkFiles;
+    private int bulkParallelism;
+    private int clientInFlightLimit;
+    private Map<String, Integer> clientWeights;
+
+    /**
+     * Constructor which sets every option to its default value
+     */
+    public ServerOptions() {
+        connectionMode = ConnectionMode.THREAD_PER_CLIENT;
+        selectorThreads = DEFAULT_SELECTOR_THREADS;
+        readBufferSize = DEFAULT_READ_BUFFER_SIZE;
+        queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        writerBackend = WriterBackend.STREAM;
+        writerBatchSize = DEFAULT_WRITER_BATCH_SIZE;
+        writerLingerMillis = DEFAULT_WRITER_LINGER_MILLIS;
+        writerForcePolicy = ForcePolicy.NEVER;
+        dedupMode = DedupMode.HEAP;
+        dedupIndexFile = DEFAULT_DEDUP_INDEX_FILE;
+        queueHighWatermark = DEFAULT_QUEUE_HIGH_WATERMARK;
+        queueLowWatermark = DEFAULT_QUEUE_LOW_WATERMARK;
+        acceptors = DEFAULT_ACCEPTORS;
+        extraPorts = new ArrayList<>();
+        outputMode = OutputMode.INCREMENTAL;
+        dumpIntervalSeconds = DEFAULT_DUMP_INTERVAL_SECONDS;
+        logFile = DEFAULT_LOG_FILE;
+        clusterNodes = new ArrayList<>();
+        clusterNodeIndex = DEFAULT_CLUSTER_NODE_INDEX;
+        clusterShutdownSeconds = DEFAULT_CLUSTER_SHUTDOWN_SECONDS;
+        writerPartitions = DEFAULT_WRITER_PARTITIONS;
+        queryPort = DEFAULT_QUERY_PORT;
+        bulkFiles = new ArrayList<>();
+        bulkParallelism = DEFAULT_BULK_PARALLELISM;
+        clientInFlightLimit = DEFAULT_CLIENT_IN_FLIGHT_LIMIT;
+        clientWeights = new HashMap<>();
+    }
+
+    /**
+     * It creates the options from the system properties given when running the program (-Dserver.xxx=value). Any
+     * property which is not specified keeps its default value.
+     * @return Options to be used by the server
+     */
+    public static ServerOptions fromSystemProperties() {
+        ServerOptions options = new ServerOptions();
+        options.setConnectionMode(enumProperty(CONNECTION_MODE_PROPERTY, ConnectionMode.class, options.getConnectionMode()));
+        options.setSelectorThreads(intProperty(SELECTOR_THREADS_PROPERTY, options.getSelectorThreads()));
+        options.setReadBufferSize(intProperty(READ_BUFFER_SIZE_PROPERTY, options.getReadBufferSize()));
+        options.setQueueCapacity(intProperty(QUEUE_CAPACITY_PROPERTY, options.getQueueCapacity()));
+        options.setWriterBackend(enumProperty(WRITER_BACKEND_PROPERTY, WriterBackend.class, options.getWriterBackend()));
+        options.setWriterBatchSize(intProperty(WRITER_BATCH_SIZE_PROPERTY, options.getWriterBatchSize()));
+        options.setWriterLingerMillis(intProperty(WRITER_LINGER_MILLIS_PROPERTY, options.getWriterLingerMillis()));
+        options.setWriterForcePolicy(enumProperty(WRITER_FORCE_POLICY_PROPERTY, ForcePolicy.class, options.getWriterForcePolicy()));
+        options.setDedupMode(enumProperty(DEDUP_MODE_PROPERTY, DedupMode.class, options.getDedupMode()));
+        options.setDedupIndexFile(stringProperty(DEDUP_INDEX_FILE_PROPERTY, options.getDedupIndexFile()));
+        options.setQueueHighWatermark(intProperty(QUEUE_HIGH_WATERMARK_PROPERTY, options.getQueueHighWatermark()));
+        options.setQueueLowWatermark(intProperty(QUEUE_LOW_WATERMARK_PROPERTY, options.getQueueLowWatermark()));
+        options.setAcceptors(intProperty(ACCEPTORS_PROPERTY, options.getAcceptors()));
+        options.setExtraPorts(portsProperty(EXTRA_PORTS_PROPERTY, options.getExtraPorts()));
+        options.setOutputMode(enumProperty(OUTPUT_MODE_PROPERTY, OutputMode.class, options.getOutputMode()));
+        options.setDumpIntervalSeconds(intProperty(DUMP_INTERVAL_SECONDS_PROPERTY, options.getDumpIntervalSeconds()));
+        options.setLogFile(stringProperty(LOG_FILE_PROPERTY, options.getLogFile()));
+        options.setClusterNodes(addressesProperty(CLUSTER_NODES_PROPERTY, options.getClusterNodes()));
+        options.setClusterNodeIndex(intProperty(CLUSTER_NODE_INDEX_PROPERTY, options.getClusterNodeIndex()));
+        options.setClusterShutdownSeconds(intProperty(CLUSTER_SHUTDOWN_SECONDS_PROPERTY, options.getClusterShutdownSeconds()));
+        options.setWriterPartitions(intProperty(WRITER_PARTITIONS_PROPERTY, options.getWriterPartitions()));
+        options.setQueryPort(intProperty(QUERY_PORT_PROPERTY, options.getQueryPort()));
+        options.setBulkFiles(listProperty(BULK_FILES_PROPERTY, options.getBulkFiles()));
+        options.setBulkParallelism(intProperty(BULK_PARALLELISM_PROPERTY, options.getBulkParallelism()));
+        options.setClientInFlightLimit(intProperty(CLIENT_IN_FLIGHT_LIMIT_PROPERTY, options.getClientInFlightLimit()));
+        options.setClientWeights(weightsProperty(CLIENT_WEIGHTS_PROPERTY, options.getClientWeights()));
+        return options;
+    }
+
+    /**
+     * It reads a numeric system property
+     * @param name Name of the property
+     * @param defaultValue Value returned when the property is not specified
+     * @return Value of the property
+     */
+    private static int intProperty(String name, int defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!NumberUtils.isDigits(value)) {
+            throw new RuntimeException("Property '" + name + "' is not a number");
+        }
+        return Integer.parseInt(value);
+    }
+
+    /**
+     * It reads a system property whose value is a list of port numbers separated by commas
+     * @param name Name of the property
+     * @param defaultValue Value returned when the property is not specified
+     * @return Value of the property
+     */
+    private static List<Integer> portsProperty(String name, List<Integer> defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        List<Integer> ports = new ArrayList<>();
+        for (String port : StringUtils.split(value, ',')) {
+            if (!NumberUtils.isDigits(port.trim())) {
+                throw new RuntimeException("Property '" + name + "' must be a list of port numbers separated by commas");
+            }
+            ports.add(Integer.parseInt(port.trim()));
+        }
+        return ports;
+    }
+
+    /**
+     * It reads a system property whose value is a list of host:port addresses separated by commas
+     * @param name Name of the property
+     * @param defaultValue Value returned when the property is not specified
+     * @return Value of the property
+     */
+    private static List<InetSocketAddress> addressesProperty(String name, List<InetSocketAddress> defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        for (String address : StringUtils.split(value, ',')) {
+            String host = StringUtils.substringBeforeLast(address.trim(), ":");
+            String port = StringUtils.substringAfterLast(address.trim(), ":");
+            if (host.isEmpty() || !NumberUtils.isDigits(port)) {
+                throw new RuntimeException("Property '" + name + "' must be a list of host:port addresses separated by commas");
+            }
+            addresses.add(InetSocketAddress.createUnresolved(host, Integer.parseInt(port)));
+        }
+        return addresses;
+    }
+
+    /**
+     * It reads a system property whose value is a list of texts separated by commas, such as file names
+     * @param name Name of the property
+     * @param defaultValue Value returned when the property is not specified
+     * @return Value of the property
+     */
+    private static List<String> listProperty(String name, List<String> defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        List<String> values = new ArrayList<>();
+        for (String item : StringUtils.split(value, ',')) {
+            values.add(item.trim());
+        }
+        return values;
+    }
+
+    /**
+     * It reads a system property whose value is a list of host=weight pairs separated by commas
+     * @param name Name of the property
+     * @param defaultValue Value returned when the property is not specified
+     * @return Value of the property, with the weight of each host
+     */
+    private static Map<String, Integer> weightsProperty(String name, Map<String, Integer> defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        Map<String, Integer> weights = new HashMap<>();
+        for (String pair : StringUtils.split(value, ',')) {
+            String host = StringUtils.substringBefore(pair.trim(), "=");
+            String weight = StringUtils.substringAfter(pair.trim(), "=");
+            if (host.isEmpty() || !NumberUtils.isDigits(weight) || Integer.parseInt(weight) == 0) {
+                throw new RuntimeException("Property '" + name + "' must be a list of host=weight pairs separated by commas, with positive weights");
+            }
+            weights.put(host, Integer.parseInt(weight));
+        }
+        return weights;
+    }
+
+    /**
+     * It reads a text system property
+     * @param name Name of the property
+     * @param defaultValue Value returned when the property is not specified
+     * @return Value of the property
+     */
+    private static String stringProperty(String name, String defaultValue) {
+        return System.getProperty(name, defaultValue);
+    }
+
+    /**
+     * It reads a system property whose value must be one of the constants of an enum, ignoring the case
+     * @param name Name of the property
+     * @param enumClass Enum which contains the allowed values
+     * @param defaultValue Value returned when the property is not specified
+     * @return Value of the property
+     */
+    private static <E extends Enum<E>> E enumProperty(String name, Class<E> enumClass, E defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        E constant = EnumUtils.getEnumIgnoreCase(enumClass, value);
+        if (constant == null) {
+            throw new RuntimeException("Property '" + name + "' must be one of " + EnumUtils.getEnumList(enumClass));
+        }
+        return constant;
+    }
+
+    /**
+     * Get connectionMode
+     */
+    public ConnectionMode getConnectionMode() {
+        return connectionMode;
+    }
+
+    /**
+     * Set connectionMode
+     */
+    public void setConnectionMode(ConnectionMode connectionMode) {
+        this.connectionMode = connectionMode;
+    }
+
+    /**
+     * Get selectorThreads
+     */
+    public int getSelectorThreads() {
+        return selectorThreads;
+    }
+
+    /**
+     * Set selectorThreads
+     */
+    public void setSelectorThreads(int selectorThreads) {
+        this.selectorThreads = selectorThreads;
+    }
+
+    /**
+     * Get readBufferSize
+     */
+    public int getReadBufferSize() {
+        return readBufferSize;
+    }
+
+    /**
+     * Set readBufferSize
+     */
+    public void setReadBufferSize(int readBufferSize) {
+        this.readBufferSize = readBufferSize;
+    }
+
+    /**
+     * Get queueCapacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Set queueCapacity
+     */
+    public void setQueueCapacity(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Get writerBackend
+     */
+    public WriterBackend getWriterBackend() {
+        return writerBackend;
+    }
+
+    /**
+     * Set writerBackend
+     */
+    public void setWriterBackend(WriterBackend writerBackend) {
+        this.writerBackend = writerBackend;
+    }
+
+    /**
+     * Get writerBatchSize
+     */
+    public int getWriterBatchSize() {
+        return writerBatchSize;
+    }
+
+    /**
+     * Set writerBatchSize
+     */
+    public void setWriterBatchSize(int writerBatchSize) {
+        this.writerBatchSize = writerBatchSize;
+    }
+
+    /**
+     * Get writerLingerMillis
+     */
+    public int getWriterLingerMillis() {
+        return writerLingerMillis;
+    }
+
+    /**
+     * Set writerLingerMillis
+     */
+    public void setWriterLingerMillis(int writerLingerMillis) {
+        this.writerLingerMillis = writerLingerMillis;
+    }
+
+    /**
+     * Get writerForcePolicy
+     */
+    public ForcePolicy getWriterForcePolicy() {
+        return writerForcePolicy;
+    }
+
+    /**
+     * Set writerForcePolicy
+     */
+    public void setWriterForcePolicy(ForcePolicy writerForcePolicy) {
+        this.writerForcePolicy = writerForcePolicy;
+    }
+
+    /**
+     * Get dedupMode
+     */
+    public DedupMode getDedupMode() {
+        return dedupMode;
+    }
+
+    /**
+     * Set dedupMode
+     */
+    public void setDedupMode(DedupMode dedupMode) {
+        this.dedupMode = dedupMode;
+    }
+
+    /**
+     * Get dedupIndexFile
+     */
+    public String getDedupIndexFile() {
+        return dedupIndexFile;
+    }
+
+    /**
+     * Set dedupIndexFile
+     */
+    public void setDedupIndexFile(String dedupIndexFile) {
+        this.dedupIndexFile = dedupIndexFile;
+    }
+
+    /**
+     * Get queueHighWatermark
+     */
+    public int getQueueHighWatermark() {
+        return queueHighWatermark;
+    }
+
+    /**
+     * Set queueHighWatermark
+     */
+    public void setQueueHighWatermark(int queueHighWatermark) {
+        this.queueHighWatermark = queueHighWatermark;
+    }
+
+    /**
+     * Get queueLowWatermark
+     */
+    public int getQueueLowWatermark() {
+        return queueLowWatermark;
+    }
+
+    /**
+     * Set queueLowWatermark
+     */
+    public void setQueueLowWatermark(int queueLowWatermark) {
+        this.queueLowWatermark = queueLowWatermark;
+    }
+
+    /**
+     * Get acceptors
+     */
+    public int getAcceptors() {
+        return acceptors;
+    }
+
+    /**
+     * Set acceptors
+     */
+    public void setAcceptors(int acceptors) {
+        this.acceptors = acceptors;
+    }
+
+    /**
+     * Get extraPorts
+     */
+    public List<Integer> getExtraPorts() {
+        return extraPorts;
+    }
+
+    /**
+     * Set extraPorts
+     */
+    public void setExtraPorts(List<Integer> extraPorts) {
+        this.extraPorts = extraPorts;
+    }
+
+    /**
+     * Get outputMode
+     */
+    public OutputMode getOutputMode() {
+        return outputMode;
+    }
+
+    /**
+     * Set outputMode
+     */
+    public void setOutputMode(OutputMode outputMode) {
+        this.outputMode = outputMode;
+    }
+
+    /**
+     * Get dumpIntervalSeconds
+     */
+    public int getDumpIntervalSeconds() {
+        return dumpIntervalSeconds;
+    }
+
+    /**
+     * Set dumpIntervalSeconds
+     */
+    public void setDumpIntervalSeconds(int dumpIntervalSeconds) {
+        this.dumpIntervalSeconds = dumpIntervalSeconds;
+    }
+
+    /**
+     * Get logFile
+     */
+    public String getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * Set logFile
+     */
+    public void setLogFile(String logFile) {
+        this.logFile = logFile;
+    }
+
+    /**
+     * Get clusterNodeIndex
+     */
+    public int getClusterNodeIndex() {
+        return clusterNodeIndex;
+    }
+
+    /**
+     * Set clusterNodeIndex
+     */
+    public void setClusterNodeIndex(int clusterNodeIndex) {
+        this.clusterNodeIndex = clusterNodeIndex;
+    }
+
+    /**
+     * Get clusterShutdownSeconds
+     */
+    public int getClusterShutdownSeconds() {
+        return clusterShutdownSeconds;
+    }
+
+    /**
+     * Set clusterShutdownSeconds
+     */
+    public void setClusterShutdownSeconds(int clusterShutdownSeconds) {
+        this.clusterShutdownSeconds = clusterShutdownSeconds;
+    }
+
+    /**
+     * Get clusterNodes
+     */
+    public List<InetSocketAddress> getClusterNodes() {
+        return clusterNodes;
+    }
+
+    /**
+     * Set clusterNodes
+     */
+    public void setClusterNodes(List<InetSocketAddress> clusterNodes) {
+        this.clusterNodes = clusterNodes;
+    }
+
+    /**
+     * Get writerPartitions
+     */
+    public int getWriterPartitions() {
+        return writerPartitions;
+    }
+
+    /**
+     * Set writerPartitions
+     */
+    public void setWriterPartitions(int writerPartitions) {
+        this.writerPartitions = writerPartitions;
+    }
+
+    /**
+     * Get queryPort
+     */
+    public int getQueryPort() {
+        return queryPort;
+    }
+
+    /**
+     * Set queryPort
+     */
+    public void setQueryPort(int queryPort) {
+        this.queryPort = queryPort;
+    }
+
+    /**
+     * Get bulkParallelism
+     */
+    public int getBulkParallelism() {
+        return bulkParallelism;
+    }
+
+    /**
+     * Set bulkParallelism
+     */
+    public void setBulkParallelism(int bulkParallelism) {
+        this.bulkParallelism = bulkParallelism;
+    }
+
+    /**
+     * Get bulkFiles
+     */
+    public List<String> getBulkFiles() {
+        return bulkFiles;
+    }
+
+    /**
+     * Set bulkFiles
+     */
+    public void setBulkFiles(List<String> bulkFiles) {
+        this.bulkFiles = bulkFiles;
+    }
+
+    /**
+     * Get clientInFlightLimit
+     */
+    public int getClientInFlightLimit() {
+        return clientInFlightLimit;
+    }
+
+    /**
+     * Set clientInFlightLimit
+     */
+    public void setClientInFlightLimit(int clientInFlightLimit) {
+        this.clientInFlightLimit = clientInFlightLimit;
+    }
+
+    /**
+     * Get clientWeights
+     */
+    public Map<String, Integer> getClientWeights() {
+        return clientWeights;
+    }
+
+    /**
+     * Set clientWeights
+     */
+    public void setClientWeights(Map<String, Integer> clientWeights) {
+        this.clientWeights = clientWeights;
+    }
+}
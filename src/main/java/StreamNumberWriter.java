@@ -0,0 +1,54 @@
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+
+public class StreamNumberWriter implements NumberWriter {
+
+    private final FileOutputStream fileOutputStream;
+    private final BufferedWriter bufferedWriter;
+    private final ForcePolicy forcePolicy;
+    private int pendingNumbers;
+
+    /**
+     * Constructor to create a writer which formats every number as a String and writes it through a BufferedWriter
+     * @param fileName Name of the file where numbers are appended
+     * @param forcePolicy Policy which decides whether a commit waits for the storage device
+     */
+    public StreamNumberWriter(String fileName, ForcePolicy forcePolicy) throws IOException {
+        this.forcePolicy = forcePolicy;
+        fileOutputStream = new FileOutputStream(fileName, true);
+        bufferedWriter = new BufferedWriter(new OutputStreamWriter(fileOutputStream, StandardCharsets.US_ASCII));
+    }
+
+    @Override
+    public void write(int number) throws IOException {
+        bufferedWriter.write(Integer.toString(number));
+        bufferedWriter.newLine();
+        pendingNumbers++;
+    }
+
+    @Override
+    public void commit() throws IOException {
+        bufferedWriter.flush();
+        if (forcePolicy == ForcePolicy.COMMIT) {
+            fileOutputStream.getFD().sync();
+        }
+        pendingNumbers = 0;
+    }
+
+    @Override
+    public int getPendingNumbers() {
+        return pendingNumbers;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            commit();
+        } finally {
+            bufferedWriter.close();
+        }
+    }
+}
@@ -1,7 +1,6 @@
 import org.apache.commons.lang3.math.NumberUtils;
 
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.nio.ByteBuffer;
 
 public class Utils {
 
@@ -11,29 +10,6 @@ public class Utils {
     private Utils() {
     }
 
-    /**
-     * The following method shuts down an ExecutorService in two phases, first by calling shutdown to reject incoming tasks,
-        and then calling shutdownNow, if necessary, to cancel any lingering tasks. Ref: Oracle docs
-     */
-    public static void shutdownAndAwaitTermination(ThreadPoolExecutor pool, Integer shutdownTimeoutSeconds) {
-        System.out.println("Shutting down thread pool");
-        pool.shutdown();
-        try {
-            System.out.println("Waiting for existing tasks to terminate");
-            if (!pool.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
-                pool.shutdownNow();
-
-                if (!pool.awaitTermination(shutdownTimeoutSeconds, TimeUnit.SECONDS)) {
-                    System.out.println("Pool did not terminate");
-                }
-            }
-        } catch (InterruptedException ie) {
-            pool.shutdownNow();
-            // Preserve interrupt status
-            Thread.currentThread().interrupt();
-        }
-    }
-
     /**
      * It takes a number as parameter and strips its leading zeros
      * @param number String variable which represents a number
@@ -64,4 +40,23 @@ public class Utils {
         input = input.replace("\\\\", "");
         return input;
     }
+
+    /**
+     * It writes a number as ASCII digits, without leading zeros, at the current position of a buffer, so it can be
+     * saved without creating a String
+     * @param buffer Buffer with at least 10 bytes remaining
+     * @param number Number from 0 to Integer.MAX_VALUE
+     */
+    public static void putNumber(ByteBuffer buffer, int number) {
+        int digits = 1;
+        for (int remaining = number; remaining >= 10; remaining /= 10) {
+            digits++;
+        }
+        int position = buffer.position();
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer.put(i, (byte) ('0' + number % 10));
+            number /= 10;
+        }
+        buffer.position(position + digits);
+    }
 }
@@ -0,0 +1,21 @@
+/**
+ * Backends available to write the unique numbers into the log file
+ */
+public enum WriterBackend {
+
+    /**
+     * Numbers are formatted as Strings and written through a BufferedWriter
+     */
+    STREAM,
+
+    /**
+     * Numbers are formatted straight into a reusable direct ByteBuffer which is written with FileChannel.write on every
+     * group commit
+     */
+    CHANNEL,
+
+    /**
+     * Numbers are formatted straight into memory-mapped regions of the file
+     */
+    MAPPED
+}
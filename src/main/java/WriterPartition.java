@@ -0,0 +1,251 @@
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class WriterPartition implements Runnable {
+
+    private static final int DRAIN_BATCH_SIZE = 4096;
+    private static final long COMMIT_BACKOFF_MILLIS = 10;
+    private static final long MAX_COMMIT_BACKOFF_MILLIS = 1000;
+    private static final int MAX_FINAL_COMMIT_ATTEMPTS = 5;
+
+    private final int index;
+    private final int rangeStart;
+    private final int rangeEnd;
+    private final IntRingBuffer queue;
+    private final String fileName;
+    private final ServerOptions options;
+    private final FlowControl flowControl;
+    private final ServerMetrics metrics;
+    private final AckSender ackSender;
+    private final boolean sampled;
+    private final int[] failedNumbers;
+    private int failedCount;
+    private long firstFailedSequence;
+    private boolean discardedNumbers;
+    private int commitFailures;
+    private volatile long writtenNumbers;
+    private volatile boolean complete;
+
+    /**
+     * Constructor to create a writer which owns a range of the numbers. It has its own ring buffer and its own file, so
+     * several partitions write on different cores without sharing anything but the deduplication structure, where
+     * their ranges are different words.
+     * @param index Index of the partition, used in its messages
+     * @param rangeStart First number of the range
+     * @param rangeEnd First number after the range
+     * @param queue Ring buffer which only receives the numbers of the range
+     * @param fileName File where the numbers of the range are appended
+     * @param options Options which select the writer backend and its group commit settings
+     * @param flowControl Backpressure applied to the clients, notified after every drain
+     * @param metrics Metrics of the server, where the commits are recorded
+     * @param ackSender Sender of the acks, woken up after every commit
+     * @param sampled True if the sequences of the ring buffer are the ones sampled by the metrics
+     */
+    public WriterPartition(int index, int rangeStart, int rangeEnd, IntRingBuffer queue, String fileName,
+                           ServerOptions options, FlowControl flowControl, ServerMetrics metrics, AckSender ackSender,
+                           boolean sampled) {
+        this.index = index;
+        this.rangeStart = rangeStart;
+        this.rangeEnd = rangeEnd;
+        this.queue = queue;
+        this.fileName = fileName;
+        this.options = options;
+        this.flowControl = flowControl;
+        this.metrics = metrics;
+        this.ackSender = ackSender;
+        this.sampled = sampled;
+        failedNumbers = new int[DRAIN_BATCH_SIZE];
+        firstFailedSequence = -1;
+    }
+
+    /**
+     * It adds a unique number of the range to the ring buffer, waiting for space if it is full, and counts it
+     * @param number Number which has just been set in the deduplication structure
+     * @return Sequence of the number in the ring buffer
+     * @throws InterruptedException If the thread is interrupted while waiting for space in the queue
+     */
+    public long put(int number) throws InterruptedException {
+        long sequence = queue.put(number);
+        if (sampled) {
+            metrics.countUnique(sequence);
+        } else {
+            metrics.countUnique();
+        }
+        return sequence;
+    }
+
+    /**
+     * It handles the execution of saving logs. Every number in the queue has already been deduplicated by submit, and
+     * they are drained in batches, so a single wake-up handles every number queued meanwhile. Numbers are committed in
+     * groups: when the writer holds a full batch, or when the linger time since the first uncommitted number has
+     * expired, so at most one batch or one linger time of accepted numbers is waiting for the file. A number which
+     * couldn't be written is kept by the writer and written again before the next commit, and a commit which fails is
+     * tried again after a growing backoff. Once the queue is closed, the writer drains what is left in it, commits it
+     * and stops, so no accepted number is left behind. If the last commit keeps failing, the writer gives up after a
+     * few attempts and the partition is left incomplete.
+     */
+    @Override
+    public void run() {
+        try (NumberWriter writer = NumberWriter.open(fileName, options)) {
+            System.out.println("Numbers from " + rangeStart + " to " + (rangeEnd - 1)
+                    + " are going to be read from queue and written to '" + fileName + "'");
+            int[] batch = new int[DRAIN_BATCH_SIZE];
+            long lingerNanos = TimeUnit.MILLISECONDS.toNanos(options.getWriterLingerMillis());
+            long commitDeadline = 0;
+            long drainedNumbers = 0;
+            while (!Thread.interrupted()) {
+                if (writer.getPendingNumbers() == 0) {
+                    queue.awaitNotEmpty();
+                    if (queue.isClosed() && queue.size() == 0) {
+                        if (failedCount > 0) {
+                            commit(writer, drainedNumbers);
+                        }
+                        break;
+                    }
+                    commitDeadline = System.nanoTime() + lingerNanos;
+                } else if (!queue.awaitNotEmpty(commitDeadline - System.nanoTime())) {
+                    if (!commit(writer, drainedNumbers) && queue.isClosed() && queue.size() == 0
+                            && commitFailures >= MAX_FINAL_COMMIT_ATTEMPTS) {
+                        System.out.println("Writer of partition " + index + " is giving up with "
+                                + writer.getPendingNumbers() + " numbers which couldn't be committed to '" + fileName + "'");
+                        break;
+                    }
+                    continue;
+                }
+                int batchSize = queue.drainTo(batch);
+                flowControl.onDrained();
+                for (int i = 0; i < batchSize; i++) {
+                    int number = batch[i];
+                    try {
+                        writer.write(number);
+                    } catch (IOException e) {
+                        System.out.println("There was an error while writing in the file. A number is going to be written again");
+                        keepFailedNumber(number, drainedNumbers + i);
+                    }
+                }
+                drainedNumbers += batchSize;
+                if (writer.getPendingNumbers() >= options.getWriterBatchSize() || System.nanoTime() - commitDeadline >= 0) {
+                    commit(writer, drainedNumbers);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Error while managing '" + fileName + "' file: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) { //awaitNotEmpty() exception
+            System.out.println("Writer of partition " + index + " has been interrupted");
+        }
+        if (failedCount > 0) {
+            System.out.println(failedCount + " numbers couldn't be written to '" + fileName + "'");
+        }
+        complete = firstFailedSequence < 0 && commitFailures == 0;
+    }
+
+    /**
+     * It keeps a number which couldn't be written, so it is written again before the next commit
+     * @param number Number which couldn't be written
+     * @param sequence Sequence of the number in the ring buffer
+     */
+    private void keepFailedNumber(int number, long sequence) {
+        if (firstFailedSequence < 0) {
+            firstFailedSequence = sequence;
+        }
+        if (failedCount < failedNumbers.length) {
+            failedNumbers[failedCount++] = number;
+        } else {
+            discardedNumbers = true;
+            System.out.println("Too many numbers couldn't be written and the number " + number + " has been discarded");
+        }
+    }
+
+    /**
+     * It writes again the numbers which couldn't be written, keeping those which fail again. Once every one of them has
+     * been written, and none has been discarded, nothing taken from the queue is missing from the writer.
+     * @param writer Writer which holds the numbers
+     */
+    private void retryFailedNumbers(NumberWriter writer) {
+        int stillFailed = 0;
+        for (int i = 0; i < failedCount; i++) {
+            try {
+                writer.write(failedNumbers[i]);
+            } catch (IOException e) {
+                failedNumbers[stillFailed++] = failedNumbers[i];
+            }
+        }
+        failedCount = stillFailed;
+        if (failedCount == 0 && !discardedNumbers) {
+            firstFailedSequence = -1;
+        }
+    }
+
+    /**
+     * It commits the numbers written so far, records the commit in the metrics and lets the clients which have asked
+     * for acks know about it. Only the numbers before the first one which couldn't be written count as written, so the
+     * acks never cover a number which isn't in the file. If the commit fails, the writer waits for a backoff which
+     * doubles with every consecutive failure, so a file which keeps failing isn't retried in a busy loop.
+     * @param writer Writer which holds the numbers
+     * @param drainedNumbers Number of numbers taken from the queue since the start
+     * @return True if the numbers have been committed
+     * @throws InterruptedException If the thread is interrupted during the backoff
+     */
+    private boolean commit(NumberWriter writer, long drainedNumbers) throws InterruptedException {
+        if (failedCount > 0) {
+            retryFailedNumbers(writer);
+        }
+        long heldNumbers = firstFailedSequence < 0 ? drainedNumbers : firstFailedSequence;
+        int batchSize = writer.getPendingNumbers();
+        try {
+            writer.commit();
+            writtenNumbers = heldNumbers;
+            if (sampled) {
+                metrics.recordCommit(batchSize, drainedNumbers);
+            } else {
+                metrics.recordCommit(batchSize);
+            }
+            ackSender.wakeUp();
+            commitFailures = 0;
+            return true;
+        } catch (IOException e) {
+            System.out.println("There was an error while committing numbers to the file: " + e.getMessage());
+            commitFailures++;
+            Thread.sleep(Math.min(MAX_COMMIT_BACKOFF_MILLIS, COMMIT_BACKOFF_MILLIS << Math.min(commitFailures, 10)));
+            return false;
+        }
+    }
+
+    /**
+     * It closes the queue of the partition, so the writer stops once every number in it has been committed. It must
+     * only be called once nothing else is going to be put in the partition.
+     */
+    public void finish() {
+        queue.close();
+    }
+
+    /**
+     * It tells whether the writer has stopped after closing its file cleanly and nothing is left in its queue
+     * @return True if every number given to the partition is in its file
+     */
+    public boolean isComplete() {
+        return complete && queue.size() == 0;
+    }
+
+    /**
+     * Get the numbers committed to the file of the partition
+     */
+    public long getWrittenNumbers() {
+        return writtenNumbers;
+    }
+
+    /**
+     * Get queue
+     */
+    public IntRingBuffer getQueue() {
+        return queue;
+    }
+
+    /**
+     * Get fileName
+     */
+    public String getFileName() {
+        return fileName;
+    }
+}
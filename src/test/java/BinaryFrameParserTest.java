@@ -0,0 +1,60 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class BinaryFrameParserTest {
+
+    @Test
+    public void testParsesFrames() {
+        BinaryFrameParser parser = new BinaryFrameParser();
+        int[] results = feed(parser, frame(0, 12345678, 999999999));
+        Assert.assertEquals(LineParser.INCOMPLETE, results[3]);
+        Assert.assertEquals(0, results[7]);
+        Assert.assertEquals(12345678, results[11]);
+        Assert.assertEquals(999999999, results[15]);
+    }
+
+    @Test
+    public void testRecognisesTerminateOpcode() {
+        int[] results = feed(new BinaryFrameParser(), ByteBuffer.allocate(4).putInt(BinaryFrameParser.TERMINATE_OPCODE).array());
+        Assert.assertEquals(LineParser.TERMINATE, results[3]);
+    }
+
+    @Test
+    public void testRejectsProtocolViolations() {
+        Assert.assertEquals(LineParser.INVALID, last(feed(new BinaryFrameParser(), frame(1_000_000_000))));
+        Assert.assertEquals(LineParser.INVALID, last(feed(new BinaryFrameParser(), frame(-5))));
+        Assert.assertEquals(LineParser.INVALID, last(feed(new BinaryFrameParser(),
+                ByteBuffer.allocate(4).putInt(-2).array())));
+        Assert.assertEquals(LineParser.INVALID, last(feed(new BinaryFrameParser(),
+                ByteBuffer.allocate(4).putInt(BinaryFrameParser.MAX_FRAME_NUMBERS + 1).array())));
+    }
+
+    @Test
+    public void testStaysInvalidAfterAViolation() {
+        BinaryFrameParser parser = new BinaryFrameParser();
+        feed(parser, frame(1_000_000_000));
+        Assert.assertEquals(LineParser.INVALID, last(feed(parser, frame(1))));
+    }
+
+    private byte[] frame(int... numbers) {
+        ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * (numbers.length + 1)).putInt(numbers.length);
+        for (int number : numbers) {
+            buffer.putInt(number);
+        }
+        return buffer.array();
+    }
+
+    private int[] feed(BinaryFrameParser parser, byte[] bytes) {
+        int[] results = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            results[i] = parser.feed(bytes[i]);
+        }
+        return results;
+    }
+
+    private int last(int[] results) {
+        return results[results.length - 1];
+    }
+}
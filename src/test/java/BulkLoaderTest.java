@@ -0,0 +1,37 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+
+public class BulkLoaderTest {
+
+    @Test
+    public void testLoadsValidLinesOfEveryChunk() throws IOException, InterruptedException {
+        String separator = System.lineSeparator();
+        Path file = Paths.get("bulk-test.txt");
+        Files.write(file, String.join(separator, "000000007", "123456789", "12345", "000000007", "terminate",
+                "999999999", "000000042", "0000000001").concat(separator).concat("000000003").getBytes());
+        ServerOptions options = new ServerOptions();
+        options.setOutputMode(OutputMode.DUMP);
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(1024), options);
+        logFileTask.run();
+        BulkLoader bulkLoader = new BulkLoader(logFileTask, 2, 7);
+        try {
+            bulkLoader.load(Collections.singletonList(file.toString()));
+        } finally {
+            logFileTask.close();
+            Files.delete(file);
+        }
+
+        Assert.assertEquals(5, bulkLoader.getLoadedNumbers());
+        Assert.assertEquals(3, bulkLoader.getInvalidLines());
+        Assert.assertEquals(3, logFileTask.getMetrics().getInvalidLines());
+        Assert.assertEquals(1, logFileTask.getMetrics().getDuplicatedNumbers());
+        Assert.assertEquals(Arrays.asList("7", "42", "123456789", "999999999"), Files.readAllLines(Paths.get("numbers.log")));
+    }
+}
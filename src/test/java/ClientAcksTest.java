@@ -0,0 +1,182 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+public class ClientAcksTest {
+
+    private static final int PORT = 4340;
+    private static final int MAX_CLIENTS = 2;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    @Test
+    public void testAcknowledgesTheLastLineWhoseNumbersArePersisted() throws IOException {
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(16), new ServerOptions());
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ClientAcks acks = new ClientAcks(Channels.newChannel(output), false, logFileTask.getAckSender(), 2);
+        acks.require(0, 5);
+        acks.mark(3);
+        acks.require(1, 2);
+        acks.mark(2);
+
+        Assert.assertFalse(acks.send(new long[]{4, 9}));
+        Assert.assertEquals("", output.toString(StandardCharsets.US_ASCII));
+        acks.send(new long[]{5, 1});
+        Assert.assertEquals("ack 3" + LINE_SEPARATOR, output.toString(StandardCharsets.US_ASCII));
+        output.reset();
+        acks.send(new long[]{6, 2});
+        acks.send(new long[]{6, 2});
+        Assert.assertEquals("ack 5" + LINE_SEPARATOR, output.toString(StandardCharsets.US_ASCII));
+        Assert.assertEquals(5, acks.getSentLines());
+        logFileTask.close();
+    }
+
+    @Test
+    public void testAClientWhichDoesNotReadItsAcksDoesNotBlockTheOthers() throws IOException, InterruptedException {
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(16), new ServerOptions());
+        CountDownLatch blockedWrite = new CountDownLatch(1);
+        CountDownLatch clientReads = new CountDownLatch(1);
+        WritableByteChannel blockingChannel = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) {
+                blockedWrite.countDown();
+                try {
+                    clientReads.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                int written = src.remaining();
+                src.position(src.limit());
+                return written;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        ClientAcks slowAcks = new ClientAcks(blockingChannel, true, logFileTask.getAckSender(), 1);
+        slowAcks.start();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ClientAcks acks = new ClientAcks(Channels.newChannel(output), false, logFileTask.getAckSender(), 1);
+        slowAcks.mark(1);
+        acks.mark(1);
+
+        Assert.assertFalse(slowAcks.send(new long[]{0}));
+        blockedWrite.await();
+        slowAcks.mark(1);
+        Assert.assertFalse(slowAcks.send(new long[]{0}));
+        acks.send(new long[]{0});
+        Assert.assertEquals("ack 1" + LINE_SEPARATOR, output.toString(StandardCharsets.US_ASCII));
+        Assert.assertEquals(2, slowAcks.getSentLines());
+        clientReads.countDown();
+        slowAcks.close();
+        logFileTask.close();
+    }
+
+    @Test
+    public void testAcknowledgesADuplicateOnceItsOriginalIsPersisted() throws IOException, InterruptedException {
+        IntRingBuffer queue = new IntRingBuffer(2);
+        LogFileTask logFileTask = new LogFileTask(queue, new ServerOptions());
+        logFileTask.submit(1);
+        logFileTask.submit(2);
+        Thread original = new Thread(() -> {
+            try {
+                logFileTask.submit(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        original.start();
+        while (!logFileTask.isReceived(5)) { //the original waits for space in the queue once its bit is set
+            Thread.sleep(1);
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ClientAcks acks = new ClientAcks(Channels.newChannel(output), false, logFileTask.getAckSender(), 1);
+        Thread duplicate = new Thread(() -> {
+            try {
+                logFileTask.submit(5, null, acks);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        duplicate.start();
+        while (duplicate.getState() != Thread.State.TIMED_WAITING && duplicate.isAlive()) { //waits for the original
+            Thread.sleep(1);
+        }
+        logFileTask.run();
+        original.join(10000);
+        duplicate.join(10000);
+        acks.mark(1);
+
+        acks.send(new long[]{2});
+        Assert.assertEquals("", output.toString(StandardCharsets.US_ASCII));
+        acks.send(new long[]{3});
+        Assert.assertEquals("ack 1" + LINE_SEPARATOR, output.toString(StandardCharsets.US_ASCII));
+        logFileTask.close();
+    }
+
+    @Test
+    public void testAcknowledgesEveryNumberWithThreads() throws IOException, InterruptedException {
+        acknowledgesEveryNumber(ConnectionMode.THREAD_PER_CLIENT);
+    }
+
+    @Test
+    public void testAcknowledgesEveryNumberWithSelector() throws IOException, InterruptedException {
+        acknowledgesEveryNumber(ConnectionMode.SELECTOR);
+    }
+
+    /**
+     * A client which asks for acks gets cumulative acks, each one for more lines than the previous one, until the last
+     * line sent, duplicates included, and every number is in the log file by then
+     */
+    private void acknowledgesEveryNumber(ConnectionMode connectionMode) throws IOException, InterruptedException {
+        ServerOptions options = new ServerOptions();
+        options.setConnectionMode(connectionMode);
+        options.setWriterPartitions(2);
+        Server server = new Server(PORT, MAX_CLIENTS, options);
+        Thread serverThread = new Thread(server::run);
+        serverThread.start();
+        Thread.sleep(1000);
+
+        int lines = 20000;
+        try (Socket client = new Socket(InetAddress.getLocalHost(), PORT)) {
+            client.setSoTimeout(10000);
+            StringBuilder input = new StringBuilder("acks").append(LINE_SEPARATOR);
+            for (int i = 0; i < lines; i++) {
+                input.append(String.format("%09d", i % 15000 * 66666L)).append(LINE_SEPARATOR);
+            }
+            client.getOutputStream().write(input.toString().getBytes(StandardCharsets.US_ASCII));
+            BufferedReader reader = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+            long acked = 0;
+            while (acked < lines) {
+                String ack = reader.readLine();
+                Assert.assertTrue(ack.startsWith("ack "));
+                long line = Long.parseLong(ack.substring(4));
+                Assert.assertTrue(line > acked);
+                acked = line;
+            }
+            Assert.assertEquals(lines, acked);
+            Assert.assertEquals(lines, server.getLogFileTask().getWrittenNumbers()
+                    + server.getLogFileTask().getMetrics().getDuplicatedNumbers());
+            new PrintWriter(client.getOutputStream(), true).println("terminate");
+        }
+        serverThread.join(60000);
+        Assert.assertFalse(serverThread.isAlive());
+    }
+}
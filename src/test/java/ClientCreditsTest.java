@@ -0,0 +1,66 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ClientCreditsTest {
+
+    @Test
+    public void testLimitsNumbersInFlightUntilTheyAreDrained() throws InterruptedException {
+        IntRingBuffer queue = new IntRingBuffer(16);
+        IntRingBuffer otherQueue = new IntRingBuffer(16);
+        ClientCredits credits = new ClientCredits(3);
+        otherQueue.put(99);
+
+        credits.acquire();
+        credits.record(queue, queue.put(1));
+        credits.acquire();
+        credits.record(otherQueue, otherQueue.put(2));
+        credits.acquire();
+        credits.record(queue, queue.put(3));
+        Assert.assertFalse(credits.tryAcquire());
+        Assert.assertEquals(3, credits.getInFlight());
+
+        otherQueue.drainTo(new int[16]);
+        Assert.assertFalse(credits.tryAcquire());
+        queue.drainTo(new int[1]);
+        Assert.assertTrue(credits.tryAcquire());
+        Assert.assertEquals(1, credits.getInFlight());
+        queue.drainTo(new int[16]);
+        Assert.assertTrue(credits.tryAcquire());
+        Assert.assertEquals(0, credits.getInFlight());
+    }
+
+    @Test
+    public void testWaitsForTheWriterWhenEveryCreditIsUsed() throws InterruptedException {
+        IntRingBuffer queue = new IntRingBuffer(16);
+        ClientCredits credits = new ClientCredits(1);
+        credits.acquire();
+        credits.record(queue, queue.put(7));
+        Thread writer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(new int[16]);
+        });
+        writer.start();
+
+        credits.acquire();
+        writer.join();
+        Assert.assertTrue(credits.getWaitedNanos() > 0);
+    }
+
+    @Test
+    public void testWeightsMultiplyTheLimitOfAHost() {
+        ServerOptions options = new ServerOptions();
+        options.setClientInFlightLimit(100);
+        options.getClientWeights().put("10.0.0.1", 4);
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(256), options);
+
+        Assert.assertEquals(256, logFileTask.openCredits("10.0.0.1").getLimit());
+        Assert.assertEquals(100, logFileTask.openCredits("10.0.0.2").getLimit());
+        options.setClientInFlightLimit(0);
+        Assert.assertNull(logFileTask.openCredits("10.0.0.2"));
+        logFileTask.close();
+    }
+}
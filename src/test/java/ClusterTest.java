@@ -0,0 +1,146 @@
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+public class ClusterTest {
+
+    private static final int[] PORTS = {4400, 4401};
+    private static final List<InetSocketAddress> NODES = Arrays.asList(
+            InetSocketAddress.createUnresolved("localhost", 4410), InetSocketAddress.createUnresolved("localhost", 4411));
+
+    @After
+    public void tearDown() throws IOException {
+        for (int i = 0; i < PORTS.length; i++) {
+            Files.deleteIfExists(Paths.get(logFile(i)));
+        }
+    }
+
+    @Test
+    public void testSplitsTheKeySpace() {
+        List<InetSocketAddress> nodes = Arrays.asList(NODES.get(0), NODES.get(1), NODES.get(0));
+        int expectedStart = 0;
+        for (int i = 0; i < nodes.size(); i++) {
+            ServerOptions options = new ServerOptions();
+            options.setClusterNodes(nodes);
+            options.setClusterNodeIndex(i);
+            Cluster cluster = new Cluster(options);
+            Assert.assertEquals(expectedStart, cluster.getRangeStart());
+            Assert.assertTrue(cluster.owns(cluster.getRangeEnd() - 1));
+            Assert.assertFalse(cluster.owns(cluster.getRangeEnd()));
+            expectedStart = cluster.getRangeEnd();
+        }
+        Assert.assertEquals(1_000_000_000, expectedStart);
+    }
+
+    @Test
+    public void testForwardsNumbersToTheirOwnerAndTerminatesEveryNode() throws IOException, InterruptedException {
+        Server[] servers = new Server[PORTS.length];
+        Thread[] serverThreads = new Thread[PORTS.length];
+        for (int i = 0; i < PORTS.length; i++) {
+            ServerOptions options = new ServerOptions();
+            options.setConnectionMode(ConnectionMode.SELECTOR);
+            options.setClusterNodes(NODES);
+            options.setClusterNodeIndex(i);
+            options.setLogFile(logFile(i));
+            servers[i] = new Server(PORTS[i], 2, options);
+            serverThreads[i] = new Thread(servers[i]::run);
+            serverThreads[i].start();
+            while (servers[i].getServerSocket() == null && serverThreads[i].isAlive()) { //waits for the server socket to be bound
+                Thread.sleep(10);
+            }
+        }
+
+        try (Socket first = new Socket(InetAddress.getLocalHost(), PORTS[0]);
+             Socket second = new Socket(InetAddress.getLocalHost(), PORTS[1])) {
+            PrintWriter firstWriter = new PrintWriter(first.getOutputStream(), true);
+            PrintWriter secondWriter = new PrintWriter(second.getOutputStream(), true);
+            secondWriter.println("000000002");
+            secondWriter.println("600000000");
+            while (servers[1].getLogFileTask().getMetrics().getUniqueNumbers() == 0) { //the number forwarded by the second node may still be in its link
+                Thread.sleep(10);
+            }
+            firstWriter.println("000000001");
+            firstWriter.println("600000000");
+            firstWriter.println("999999999");
+            firstWriter.println("terminate");
+            for (Thread serverThread : serverThreads) {
+                serverThread.join(60000);
+            }
+        }
+
+        Assert.assertFalse(serverThreads[0].isAlive());
+        Assert.assertFalse(serverThreads[1].isAlive());
+        Assert.assertEquals(Arrays.asList("1", "2"), sortedLines(logFile(0)));
+        Assert.assertEquals(Arrays.asList("600000000", "999999999"), sortedLines(logFile(1)));
+        Assert.assertEquals(1, servers[0].getLogFileTask().getCluster().getReceivedNumbers());
+        Assert.assertEquals(2, servers[1].getLogFileTask().getCluster().getReceivedNumbers());
+    }
+
+    @Test
+    public void testGivesUpOnAPeerWhichCantBeReached() throws IOException, InterruptedException {
+        ServerOptions options = new ServerOptions();
+        options.setClusterNodes(NODES);
+        options.setClusterShutdownSeconds(1);
+        options.setLogFile(logFile(0));
+        Server server = new Server(PORTS[0], 2, options);
+        Thread serverThread = new Thread(server::run);
+        serverThread.start();
+        while (server.getServerSocket() == null && serverThread.isAlive()) { //waits for the server socket to be bound
+            Thread.sleep(10);
+        }
+
+        try (Socket client = new Socket(InetAddress.getLocalHost(), PORTS[0])) {
+            PrintWriter writer = new PrintWriter(client.getOutputStream(), true);
+            writer.println("000000001");
+            writer.println("600000000"); //owned by the second node, which never starts
+            writer.println("terminate");
+            serverThread.join(60000);
+        }
+        Assert.assertFalse(serverThread.isAlive());
+        Assert.assertFalse(server.getLogFileTask().isLogFileComplete());
+        Assert.assertEquals(Arrays.asList("1"), Files.readAllLines(Paths.get(logFile(0))));
+    }
+
+    @Test
+    public void testRefusesAcks() throws IOException, InterruptedException {
+        ServerOptions options = new ServerOptions();
+        options.setClusterNodes(NODES.subList(0, 1));
+        options.setLogFile(logFile(0));
+        Server server = new Server(PORTS[0], 2, options);
+        Thread serverThread = new Thread(server::run);
+        serverThread.start();
+        while (server.getServerSocket() == null && serverThread.isAlive()) { //waits for the server socket to be bound
+            Thread.sleep(10);
+        }
+
+        try (Socket client = new Socket(InetAddress.getLocalHost(), PORTS[0])) {
+            client.setSoTimeout(10000);
+            new PrintWriter(client.getOutputStream(), true).println("acks");
+            Assert.assertEquals(-1, client.getInputStream().read()); //the server disconnects the client
+        }
+        Assert.assertEquals(1, server.getLogFileTask().getMetrics().getInvalidLines());
+        server.terminate();
+        serverThread.join(60000);
+        Assert.assertFalse(serverThread.isAlive());
+    }
+
+    private String logFile(int node) {
+        return "node" + node + ".log";
+    }
+
+    private List<String> sortedLines(String fileName) throws IOException {
+        List<String> lines = Files.readAllLines(Paths.get(fileName));
+        lines.sort(null);
+        return lines;
+    }
+}
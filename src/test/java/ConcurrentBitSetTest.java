@@ -0,0 +1,61 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ConcurrentBitSetTest {
+
+    @Test
+    public void testTestAndSet() {
+        ConcurrentBitSet bitSet = new ConcurrentBitSet(1000);
+        Assert.assertFalse(bitSet.get(63));
+        Assert.assertFalse(bitSet.testAndSet(63));
+        Assert.assertTrue(bitSet.testAndSet(63));
+        Assert.assertTrue(bitSet.get(63));
+        Assert.assertFalse(bitSet.get(64));
+        Assert.assertFalse(bitSet.get(62));
+    }
+
+    @Test
+    public void testLastBit() {
+        ConcurrentBitSet bitSet = new ConcurrentBitSet(999_999_999 + 1);
+        Assert.assertFalse(bitSet.testAndSet(999_999_999));
+        Assert.assertTrue(bitSet.get(999_999_999));
+    }
+
+    @Test
+    public void testNextSetBit() {
+        ConcurrentBitSet bitSet = new ConcurrentBitSet(1000);
+        Assert.assertEquals(-1, bitSet.nextSetBit(0));
+        bitSet.set(5);
+        bitSet.set(64);
+        bitSet.set(999);
+        Assert.assertEquals(5, bitSet.nextSetBit(0));
+        Assert.assertEquals(5, bitSet.nextSetBit(5));
+        Assert.assertEquals(64, bitSet.nextSetBit(6));
+        Assert.assertEquals(999, bitSet.nextSetBit(65));
+        Assert.assertEquals(-1, bitSet.nextSetBit(1000));
+    }
+
+    @Test
+    public void testOnlyOneThreadSetsEachBit() throws InterruptedException {
+        int numBits = 100_000;
+        ConcurrentBitSet bitSet = new ConcurrentBitSet(numBits);
+        AtomicInteger firstSeen = new AtomicInteger();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < numBits; i++) {
+                    if (!bitSet.testAndSet(i)) {
+                        firstSeen.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(numBits, firstSeen.get());
+    }
+}
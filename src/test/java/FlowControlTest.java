@@ -0,0 +1,38 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class FlowControlTest {
+
+    @Test
+    public void testThrottlesAtHighWatermarkAndResumesAtLowWatermark() {
+        IntRingBuffer queue = new IntRingBuffer(16);
+        FlowControl flowControl = new FlowControl(queue, 75, 25);
+        AtomicInteger resumes = new AtomicInteger();
+        flowControl.addResumeListener(resumes::incrementAndGet);
+        for (int i = 0; i < 11; i++) {
+            queue.offer(i);
+        }
+        Assert.assertFalse(flowControl.isThrottled());
+        queue.offer(11);
+        Assert.assertTrue(flowControl.isThrottled());
+        Assert.assertEquals(1, flowControl.getThrottleEventsTotal());
+
+        queue.drainTo(new int[6]);
+        flowControl.onDrained();
+        Assert.assertTrue(flowControl.isThrottled());
+        Assert.assertEquals(0, resumes.get());
+
+        queue.drainTo(new int[2]);
+        flowControl.onDrained();
+        Assert.assertFalse(flowControl.isThrottled());
+        Assert.assertEquals(1, resumes.get());
+        Assert.assertEquals(1, flowControl.getThrottleEventsTotal());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsLowWatermarkAboveHighWatermark() {
+        new FlowControl(new IntRingBuffer(16), 50, 60);
+    }
+}
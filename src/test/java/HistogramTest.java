@@ -0,0 +1,36 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void testBucketsCoverEveryValue() {
+        long[] values = {0, 1, 7, 8, 15, 16, 1000, 123456789, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = Histogram.bucketIndex(value);
+            Assert.assertTrue(Histogram.bucketUpperBound(index) >= value);
+            Assert.assertTrue(index == 0 || Histogram.bucketUpperBound(index - 1) < value);
+        }
+    }
+
+    @Test
+    public void testPercentilesAreWithinTheBucketError() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(500.5, histogram.getMean(), 0.001);
+        Assert.assertEquals(1000, histogram.getMax());
+        long median = histogram.getPercentile(50);
+        Assert.assertTrue(median >= 500 && median <= 500 * 1.125);
+        Assert.assertEquals(1000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        Histogram histogram = new Histogram();
+        Assert.assertEquals(0, histogram.getPercentile(99));
+        Assert.assertEquals(0, histogram.getMean(), 0);
+    }
+}
@@ -0,0 +1,111 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+
+public class IntRingBufferTest {
+
+    @Test
+    public void testRoundsCapacityToPowerOfTwo() {
+        Assert.assertEquals(1, new IntRingBuffer(1).getCapacity());
+        Assert.assertEquals(8, new IntRingBuffer(5).getCapacity());
+        Assert.assertEquals(1024, new IntRingBuffer(1024).getCapacity());
+    }
+
+    @Test
+    public void testRejectsWhenFull() {
+        IntRingBuffer ringBuffer = new IntRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertTrue(ringBuffer.offer(i));
+        }
+        Assert.assertFalse(ringBuffer.offer(4));
+        Assert.assertEquals(4, ringBuffer.size());
+    }
+
+    @Test
+    public void testDrainsInOrder() {
+        IntRingBuffer ringBuffer = new IntRingBuffer(4);
+        int[] batch = new int[3];
+        for (int round = 0; round < 10; round++) {
+            ringBuffer.offer(round);
+            ringBuffer.offer(round + 100);
+            Assert.assertEquals(2, ringBuffer.drainTo(batch));
+            Assert.assertEquals(round, batch[0]);
+            Assert.assertEquals(round + 100, batch[1]);
+        }
+        Assert.assertEquals(0, ringBuffer.drainTo(batch));
+    }
+
+    @Test
+    public void testDeliversEveryNumberFromManyProducers() throws InterruptedException {
+        int producers = 4;
+        int numbersPerProducer = 200_000;
+        IntRingBuffer ringBuffer = new IntRingBuffer(1024);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            int first = p * numbersPerProducer;
+            threads[p] = new Thread(() -> {
+                try {
+                    for (int i = 0; i < numbersPerProducer; i++) {
+                        ringBuffer.put(first + i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads[p].start();
+        }
+
+        BitSet received = new BitSet(producers * numbersPerProducer);
+        int[] batch = new int[256];
+        int total = 0;
+        while (total < producers * numbersPerProducer) {
+            ringBuffer.awaitNotEmpty();
+            int batchSize = ringBuffer.drainTo(batch);
+            for (int i = 0; i < batchSize; i++) {
+                Assert.assertFalse(received.get(batch[i]));
+                received.set(batch[i]);
+            }
+            total += batchSize;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(producers * numbersPerProducer, received.cardinality());
+        Assert.assertEquals(0, ringBuffer.size());
+    }
+
+    @Test
+    public void testCloseStopsTheConsumerOnceDrained() throws InterruptedException {
+        IntRingBuffer ringBuffer = new IntRingBuffer(4);
+        int[] drained = new int[1];
+        Thread consumer = new Thread(() -> {
+            int[] batch = new int[4];
+            try {
+                while (true) {
+                    ringBuffer.awaitNotEmpty();
+                    if (ringBuffer.isClosed() && ringBuffer.size() == 0) {
+                        break;
+                    }
+                    drained[0] += ringBuffer.drainTo(batch);
+                }
+            } catch (InterruptedException e) {
+                drained[0] = -1;
+            }
+        });
+        consumer.start();
+        ringBuffer.put(1);
+        ringBuffer.put(2);
+        ringBuffer.close();
+        consumer.join(10000);
+        Assert.assertFalse(consumer.isAlive());
+        Assert.assertEquals(2, drained[0]);
+        Assert.assertFalse(ringBuffer.awaitNotEmpty(Long.MAX_VALUE));
+        try {
+            ringBuffer.put(3);
+            Assert.fail("A closed buffer must reject numbers");
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(0, ringBuffer.size());
+        }
+    }
+}
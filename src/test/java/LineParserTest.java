@@ -0,0 +1,83 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+public class LineParserTest {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    @Test
+    public void testParsesNineDigits() {
+        Assert.assertEquals(12345678, feedLine(new LineParser(), "012345678"));
+    }
+
+    @Test
+    public void testParsesZero() {
+        Assert.assertEquals(0, feedLine(new LineParser(), "000000000"));
+    }
+
+    @Test
+    public void testRecognisesTerminate() {
+        Assert.assertEquals(LineParser.TERMINATE, feedLine(new LineParser(), "terminate"));
+    }
+
+    @Test
+    public void testRejectsInvalidLines() {
+        Assert.assertEquals(LineParser.INVALID, feedLine(new LineParser(), "test"));
+        Assert.assertEquals(LineParser.INVALID, feedLine(new LineParser(), "12345678"));
+        Assert.assertEquals(LineParser.INVALID, feedLine(new LineParser(), "0123456789"));
+        Assert.assertEquals(LineParser.INVALID, feedLine(new LineParser(), "-12345678"));
+        Assert.assertEquals(LineParser.INVALID, feedLine(new LineParser(), "Terminate"));
+        Assert.assertEquals(LineParser.INVALID, feedLine(new LineParser(), "0".repeat(100)));
+    }
+
+    @Test
+    public void testRemovesEscapeCharacters() {
+        Assert.assertEquals(12345678, feedLine(new LineParser(), "0123\t45678"));
+        Assert.assertEquals(12345678, feedLine(new LineParser(), "0123456789\b"));
+        Assert.assertEquals(12345678, feedLine(new LineParser(), "0123\\\\45678"));
+    }
+
+    @Test
+    public void testKeepsStateBetweenCalls() {
+        LineParser parser = new LineParser();
+        Assert.assertEquals(LineParser.INCOMPLETE, feed(parser, "0123"));
+        Assert.assertEquals(12345678, feedLine(parser, "45678"));
+        Assert.assertEquals(999999999, feedLine(parser, "999999999"));
+    }
+
+    @Test
+    public void testRecognisesBinaryOnlyOnTheFirstLine() {
+        Assert.assertEquals(LineParser.BINARY, feedLine(new LineParser(), "binary"));
+        LineParser parser = new LineParser();
+        Assert.assertEquals(12345678, feedLine(parser, "012345678"));
+        Assert.assertEquals(LineParser.INVALID, feedLine(parser, "binary"));
+    }
+
+    @Test
+    public void testAllowsBinaryAfterAcks() {
+        LineParser parser = new LineParser();
+        Assert.assertEquals(LineParser.ACKS, feedLine(parser, "acks"));
+        Assert.assertEquals(LineParser.BINARY, feedLine(parser, "binary"));
+        parser = new LineParser();
+        Assert.assertEquals(LineParser.ACKS, feedLine(parser, "acks"));
+        Assert.assertEquals(12345678, feedLine(parser, "012345678"));
+        Assert.assertEquals(LineParser.INVALID, feedLine(parser, "acks"));
+        parser = new LineParser();
+        Assert.assertEquals(LineParser.ACKS, feedLine(parser, "acks"));
+        Assert.assertEquals(LineParser.INVALID, feedLine(parser, "acks"));
+    }
+
+    private int feedLine(LineParser parser, String line) {
+        return feed(parser, line + LINE_SEPARATOR);
+    }
+
+    private int feed(LineParser parser, String input) {
+        int result = LineParser.INCOMPLETE;
+        for (byte b : input.getBytes(StandardCharsets.US_ASCII)) {
+            result = parser.feed(b);
+        }
+        return result;
+    }
+}
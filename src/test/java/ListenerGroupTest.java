@@ -0,0 +1,50 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+public class ListenerGroupTest {
+
+    private static final int PORT = 4310;
+
+    @Test
+    public void testBindsEveryPort() throws IOException {
+        try (ListenerGroup listeners = ListenerGroup.bindChannels(Arrays.asList(PORT, PORT + 1), 1)) {
+            Assert.assertEquals(2, listeners.getChannels().size());
+            Assert.assertEquals(PORT + 1, listeners.getSockets().get(1).getLocalPort());
+        }
+    }
+
+    @Test
+    public void testSharesPortsWhenReusePortIsSupported() throws IOException {
+        ListenerGroup listeners = ListenerGroup.bindSockets(Arrays.asList(PORT, PORT + 1), 2);
+        try {
+            int perPort = listeners.getSockets().size() / 2;
+            Assert.assertTrue(perPort == 1 || perPort == 2);
+            Assert.assertEquals(PORT, listeners.getSockets().get(perPort - 1).getLocalPort());
+            Assert.assertFalse(listeners.isClosed());
+        } finally {
+            listeners.close();
+        }
+        Assert.assertTrue(listeners.isClosed());
+    }
+
+    @Test
+    public void testClosesBoundSocketsWhenAPortIsBusy() throws IOException {
+        try (ListenerGroup busy = ListenerGroup.bindSockets(Arrays.asList(PORT + 1), 1)) {
+            Assert.assertFalse(busy.isClosed());
+            try {
+                ListenerGroup.bindSockets(Arrays.asList(PORT, PORT + 1), 1);
+                Assert.fail("The port is already in use");
+            } catch (IOException e) {
+                ListenerGroup.bindSockets(Arrays.asList(PORT), 1).close();
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNoAcceptors() throws IOException {
+        ListenerGroup.bindChannels(Arrays.asList(PORT), 0);
+    }
+}
@@ -0,0 +1,59 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.Socket;
+
+public class LoadGeneratorTest {
+
+    private static final int PORT = 4200;
+    private static final int MAX_CLIENTS = 5;
+
+    @Test
+    public void testEveryUniqueNumberIsPersisted() throws InterruptedException {
+        runAndVerify(false);
+    }
+
+    @Test
+    public void testEveryUniqueNumberIsPersistedWithBinaryFrames() throws InterruptedException {
+        runAndVerify(true);
+    }
+
+    private void runAndVerify(boolean binary) throws InterruptedException {
+        Server server = new Server(PORT, MAX_CLIENTS, new ServerOptions());
+        Thread serverThread = new Thread(server::run);
+        serverThread.start();
+
+        LoadGeneratorOptions options = new LoadGeneratorOptions();
+        options.setPort(PORT);
+        options.setConnections(MAX_CLIENTS + 3);
+        options.setNumbersPerConnection(50_000);
+        options.setDuplicateRatio(0.3);
+        options.setInvalidLineRate(0.0001);
+        options.setBinary(binary);
+        LoadReport report = awaitServer(options);
+        serverThread.join(60000);
+
+        Assert.assertEquals(0, report.getConnectionsRejected());
+        Assert.assertTrue(report.getUniqueNumbersSent() > 0);
+        Assert.assertTrue(report.getUniqueNumbersSent() < report.getNumbersSent()); //some numbers are duplicates
+        Assert.assertEquals(MAX_CLIENTS + 3 + report.getInvalidLinesSent(), report.getConnectionsOpened());
+        Assert.assertEquals(report.getUniqueNumbersSent(), report.getPersistedNumbers());
+        Assert.assertTrue(server.getServerSocket().isClosed());
+    }
+
+    /**
+     * It runs the load generator once the server accepts connections, instead of waiting a fixed time for it to start
+     */
+    private LoadReport awaitServer(LoadGeneratorOptions options) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            try {
+                new Socket(options.getHost(), options.getPort()).close();
+                break;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        return new LoadGenerator(options).run();
+    }
+}
@@ -0,0 +1,103 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+
+public class LogFileTaskTest {
+
+    @Test
+    public void testDumpsSortedNumbersAtShutdown() throws InterruptedException, IOException {
+        ServerOptions options = new ServerOptions();
+        options.setOutputMode(OutputMode.DUMP);
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(1024), options);
+        logFileTask.run();
+        for (int number : new int[]{999_999_999, 5, 3, 5, 0, 64}) {
+            logFileTask.submit(number);
+        }
+        Assert.assertFalse(Files.exists(Paths.get("numbers.log")));
+        logFileTask.close();
+
+        Assert.assertEquals(Arrays.asList("0", "3", "5", "64", "999999999"), Files.readAllLines(Paths.get("numbers.log")));
+        Assert.assertEquals(5, logFileTask.getMetrics().getUniqueNumbers());
+        Assert.assertEquals(1, logFileTask.getMetrics().getDuplicatedNumbers());
+    }
+
+    @Test
+    public void testDumpsAtCheckpoints() throws InterruptedException, IOException {
+        ServerOptions options = new ServerOptions();
+        options.setOutputMode(OutputMode.DUMP);
+        options.setDumpIntervalSeconds(1);
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(1024), options);
+        logFileTask.run();
+        logFileTask.submit(42);
+        Thread.sleep(1500);
+        List<String> checkpoint = Files.readAllLines(Paths.get("numbers.log"));
+        logFileTask.submit(7);
+        logFileTask.close();
+
+        Assert.assertEquals(Arrays.asList("42"), checkpoint);
+        Assert.assertEquals(Arrays.asList("7", "42"), Files.readAllLines(Paths.get("numbers.log")));
+    }
+
+    @Test
+    public void testMergesPartitionSegmentsInRangeOrder() throws InterruptedException, IOException {
+        ServerOptions options = new ServerOptions();
+        options.setWriterPartitions(4);
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(1024), options);
+        logFileTask.run();
+        for (int number : new int[]{999_999_999, 5, 250_000_000, 5, 600_000_000, 249_999_999}) {
+            logFileTask.submit(number);
+        }
+        logFileTask.close();
+
+        Assert.assertEquals(Arrays.asList("5", "249999999", "250000000", "600000000", "999999999"),
+                Files.readAllLines(Paths.get("numbers.log")));
+        for (int i = 0; i < 4; i++) {
+            Assert.assertFalse(Files.exists(Paths.get("numbers.log.part" + i)));
+        }
+        Assert.assertEquals(5, logFileTask.getMetrics().getUniqueNumbers());
+        Assert.assertEquals(1, logFileTask.getMetrics().getDuplicatedNumbers());
+    }
+
+    @Test
+    public void testForgetsANumberWhichCouldNotBeQueued() throws InterruptedException {
+        IntRingBuffer queue = new IntRingBuffer(2);
+        LogFileTask logFileTask = new LogFileTask(queue, new ServerOptions());
+        for (int i = 0; i < queue.getCapacity(); i++) {
+            logFileTask.submit(5 + i);
+        }
+        Thread.currentThread().interrupt();
+        try {
+            logFileTask.submit(1000);
+            Assert.fail("The queue is full and the thread has been interrupted");
+        } catch (InterruptedException e) {
+            Assert.assertTrue(logFileTask.isReceived(5));
+            Assert.assertFalse(logFileTask.isReceived(1000));
+        }
+        Assert.assertEquals(queue.getCapacity(), logFileTask.getMetrics().getUniqueNumbers());
+        logFileTask.close();
+    }
+
+    @Test
+    public void testStopsAWriterWhoseCommitsKeepFailing() throws InterruptedException {
+        ServerOptions options = new ServerOptions();
+        options.setWriterBackend(WriterBackend.CHANNEL);
+        IntRingBuffer queue = new IntRingBuffer(16);
+        FlowControl flowControl = new FlowControl(queue, 90, 50);
+        WriterPartition partition = new WriterPartition(0, 0, 1000, queue, "/dev/full", options, flowControl,
+                new ServerMetrics(queue, flowControl, 0), new AckSender(1), false);
+        partition.put(7);
+        partition.finish();
+        Thread writer = new Thread(partition);
+        writer.start();
+        writer.join(30000);
+
+        Assert.assertFalse(writer.isAlive()); //the writer gives up instead of retrying forever
+        Assert.assertFalse(partition.isComplete());
+        Assert.assertEquals(0, partition.getWrittenNumbers());
+    }
+}
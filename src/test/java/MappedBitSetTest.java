@@ -0,0 +1,61 @@
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+public class MappedBitSetTest {
+
+    private static final int NUM_BITS = 1_000_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testKeepsBitsAfterCheckpoint() throws IOException {
+        String fileName = new File(folder.getRoot(), "numbers.idx").getPath();
+        try (MappedBitSet bitSet = new MappedBitSet(fileName, NUM_BITS)) {
+            Assert.assertFalse(bitSet.isConsistentWith(0));
+            Assert.assertFalse(bitSet.testAndSet(42));
+            Assert.assertTrue(bitSet.testAndSet(42));
+            bitSet.checkpoint(3);
+        }
+        try (MappedBitSet bitSet = new MappedBitSet(fileName, NUM_BITS)) {
+            Assert.assertTrue(bitSet.isConsistentWith(3));
+            Assert.assertFalse(bitSet.isConsistentWith(4));
+            Assert.assertTrue(bitSet.get(42));
+            Assert.assertFalse(bitSet.get(43));
+        }
+    }
+
+    @Test
+    public void testNextSetBit() throws IOException {
+        try (MappedBitSet bitSet = new MappedBitSet(new File(folder.getRoot(), "numbers.idx").getPath(), NUM_BITS)) {
+            bitSet.set(70);
+            bitSet.set(NUM_BITS - 1);
+            Assert.assertEquals(70, bitSet.nextSetBit(0));
+            Assert.assertEquals(NUM_BITS - 1, bitSet.nextSetBit(71));
+            Assert.assertEquals(-1, bitSet.nextSetBit(NUM_BITS));
+        }
+    }
+
+    @Test
+    public void testIsNotConsistentWithoutCheckpoint() throws IOException {
+        String fileName = new File(folder.getRoot(), "numbers.idx").getPath();
+        try (MappedBitSet bitSet = new MappedBitSet(fileName, NUM_BITS)) {
+            bitSet.set(NUM_BITS - 1);
+            bitSet.checkpoint(0);
+        }
+        try (MappedBitSet bitSet = new MappedBitSet(fileName, NUM_BITS)) {
+            Assert.assertTrue(bitSet.isConsistentWith(0));
+            bitSet.set(7);
+        }
+        try (MappedBitSet bitSet = new MappedBitSet(fileName, NUM_BITS)) {
+            Assert.assertFalse(bitSet.isConsistentWith(0));
+            bitSet.clear();
+            Assert.assertFalse(bitSet.get(NUM_BITS - 1));
+        }
+    }
+}
@@ -0,0 +1,69 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.Arrays;
+
+public class MultiAcceptorTest {
+
+    private static final int PORT = 4320;
+    private static final int EXTRA_PORT = 4321;
+    private static final int MAX_CLIENTS = 2;
+
+    @Test
+    public void testLimitsClientsAcrossAcceptorsWithSelectors() throws IOException, InterruptedException {
+        limitsClientsAcrossAcceptors(ConnectionMode.SELECTOR);
+    }
+
+    @Test
+    public void testLimitsClientsAcrossAcceptorsWithThreads() throws IOException, InterruptedException {
+        limitsClientsAcrossAcceptors(ConnectionMode.THREAD_PER_CLIENT);
+    }
+
+    /**
+     * Two clients connected through different ports use every permit, so a third one waits until any of them leaves,
+     * and its 'terminate' closes every port
+     */
+    private void limitsClientsAcrossAcceptors(ConnectionMode connectionMode) throws IOException, InterruptedException {
+        ServerOptions options = new ServerOptions();
+        options.setConnectionMode(connectionMode);
+        options.setAcceptors(2);
+        options.setExtraPorts(Arrays.asList(EXTRA_PORT));
+        Server server = new Server(PORT, MAX_CLIENTS, options);
+        Thread serverThread = new Thread(server::run);
+        serverThread.start();
+        while (server.getServerSocket() == null && serverThread.isAlive()) { //waits for the server socket to be bound
+            Thread.sleep(10);
+        }
+
+        Socket first = new Socket(InetAddress.getLocalHost(), PORT);
+        try (Socket second = new Socket(InetAddress.getLocalHost(), EXTRA_PORT)) {
+            new PrintWriter(first.getOutputStream(), true).println("012345678");
+            new PrintWriter(second.getOutputStream(), true).println("123456789");
+            while (server.getServerAccess().availablePermits() > 0) { //waits for both clients to get their permits
+                Thread.sleep(10);
+            }
+            try (Socket waiting = new Socket(InetAddress.getLocalHost(), EXTRA_PORT)) {
+                new PrintWriter(waiting.getOutputStream(), true).println("terminate");
+                Thread.sleep(500);
+                Assert.assertEquals(0, server.getServerAccess().availablePermits());
+                Assert.assertFalse(server.getServerSocket().isClosed());
+
+                first.close();
+                serverThread.join(60000);
+            }
+        } finally {
+            first.close();
+        }
+        Assert.assertFalse(serverThread.isAlive());
+        try {
+            new Socket(InetAddress.getLocalHost(), EXTRA_PORT).close();
+            Assert.fail("Every port must be closed after 'terminate'");
+        } catch (IOException e) {
+            Assert.assertTrue(server.getServerSocket().isClosed());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+public class NumberWriterTest {
+
+    private static final int[] NUMBERS = {0, 7, 10, 12345678, 999999999};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testStreamWriter() throws IOException {
+        Assert.assertEquals(expectedLines(), writeNumbers(WriterBackend.STREAM));
+    }
+
+    @Test
+    public void testChannelWriter() throws IOException {
+        Assert.assertEquals(expectedLines(), writeNumbers(WriterBackend.CHANNEL));
+    }
+
+    @Test
+    public void testMappedWriter() throws IOException {
+        Assert.assertEquals(expectedLines(), writeNumbers(WriterBackend.MAPPED));
+    }
+
+    @Test
+    public void testCommitResetsPendingNumbers() throws IOException {
+        ServerOptions options = new ServerOptions();
+        options.setWriterBackend(WriterBackend.CHANNEL);
+        options.setWriterForcePolicy(ForcePolicy.COMMIT);
+        File file = new File(folder.getRoot(), "numbers.log");
+        try (NumberWriter writer = NumberWriter.open(file.getPath(), options)) {
+            writer.write(1);
+            writer.write(2);
+            Assert.assertEquals(2, writer.getPendingNumbers());
+            writer.commit();
+            Assert.assertEquals(0, writer.getPendingNumbers());
+            Assert.assertEquals(Arrays.asList("1", "2"), Files.readAllLines(file.toPath()));
+        }
+    }
+
+    private List<String> writeNumbers(WriterBackend backend) throws IOException {
+        ServerOptions options = new ServerOptions();
+        options.setWriterBackend(backend);
+        File file = new File(folder.getRoot(), backend + ".log");
+        try (NumberWriter writer = NumberWriter.open(file.getPath(), options)) {
+            for (int number : NUMBERS) {
+                writer.write(number);
+            }
+        }
+        return Files.readAllLines(file.toPath());
+    }
+
+    private List<String> expectedLines() {
+        return Arrays.asList("0", "7", "10", "12345678", "999999999");
+    }
+}
@@ -0,0 +1,42 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PagedBitSetTest {
+
+    @Test
+    public void testAllocatesPagesOnFirstSet() {
+        PagedBitSet bitSet = new PagedBitSet(1_000_000_000);
+        Assert.assertEquals(0, bitSet.getAllocatedPages());
+        Assert.assertFalse(bitSet.get(999_999_999));
+        Assert.assertEquals(0, bitSet.getAllocatedPages());
+
+        Assert.assertFalse(bitSet.testAndSet(999_999_999));
+        Assert.assertTrue(bitSet.testAndSet(999_999_999));
+        Assert.assertFalse(bitSet.testAndSet(0));
+        Assert.assertFalse(bitSet.testAndSet(1));
+        Assert.assertEquals(2, bitSet.getAllocatedPages());
+    }
+
+    @Test
+    public void testNextSetBitSkipsMissingPages() {
+        PagedBitSet bitSet = new PagedBitSet(1_000_000_000);
+        bitSet.set(3);
+        bitSet.set(524_290);
+        bitSet.set(999_999_999);
+        Assert.assertEquals(3, bitSet.nextSetBit(0));
+        Assert.assertEquals(524_290, bitSet.nextSetBit(4));
+        Assert.assertEquals(999_999_999, bitSet.nextSetBit(524_291));
+        Assert.assertEquals(-1, bitSet.nextSetBit(1_000_000_000));
+    }
+
+    @Test
+    public void testBitsOfDifferentPages() {
+        PagedBitSet bitSet = new PagedBitSet(1_000_000);
+        bitSet.set(524_287);
+        Assert.assertTrue(bitSet.get(524_287));
+        Assert.assertFalse(bitSet.get(524_288));
+        bitSet.set(524_288);
+        Assert.assertTrue(bitSet.get(524_288));
+        Assert.assertEquals(2, bitSet.getAllocatedPages());
+    }
+}
@@ -0,0 +1,89 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class QueryServerTest {
+
+    private static final int PORT = 4330;
+
+    @Test
+    public void testAnswersQueries() throws InterruptedException {
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(1024), new ServerOptions());
+        QueryServer queryServer = new QueryServer(PORT, logFileTask);
+        logFileTask.submit(5);
+        logFileTask.submit(999_999_999);
+        logFileTask.submit(5);
+        logFileTask.getMetrics().countInvalidLine();
+
+        Assert.assertEquals("101", queryServer.query("contains 5 6 999999999"));
+        Assert.assertEquals("2", queryServer.query("total"));
+        Assert.assertEquals("unique 2 duplicates 1 invalid 1", queryServer.query("window"));
+        logFileTask.printReport();
+        Assert.assertEquals("unique 0 duplicates 0 invalid 0", queryServer.query("window"));
+        Assert.assertEquals("error invalid number 1000000000", queryServer.query("contains 5 1000000000"));
+        Assert.assertEquals("error unknown query", queryServer.query("terminate"));
+        Assert.assertEquals("error more than 4096 numbers", queryServer.query("contains" + " 5".repeat(4097)));
+        logFileTask.close();
+    }
+
+    @Test
+    public void testAnswersPipelinedQueriesOnItsPort() throws InterruptedException, IOException {
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(1024), new ServerOptions());
+        QueryServer queryServer = new QueryServer(PORT, logFileTask);
+        queryServer.start();
+        logFileTask.submit(42);
+        try (Socket socket = new Socket("localhost", PORT);
+             BufferedReader reader = new BufferedReader(
+                     new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))) {
+            OutputStream output = socket.getOutputStream();
+            output.write("contains 42 43\ntotal\n".getBytes(StandardCharsets.US_ASCII));
+            Assert.assertEquals("10", reader.readLine());
+            Assert.assertEquals("1", reader.readLine());
+        } finally {
+            queryServer.close();
+            logFileTask.close();
+        }
+        Assert.assertTrue(queryServer.getServerSocket().isClosed());
+    }
+
+    @Test
+    public void testBoundsLinesAndConnections() throws IOException {
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(1024), new ServerOptions());
+        QueryServer queryServer = new QueryServer(PORT, logFileTask);
+        queryServer.start();
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 64; i++) {
+                Socket socket = new Socket("localhost", PORT);
+                sockets.add(socket);
+                socket.getOutputStream().write("total\n".getBytes(StandardCharsets.US_ASCII));
+                Assert.assertEquals("0", new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII)).readLine());
+            }
+            Socket rejected = new Socket("localhost", PORT);
+            sockets.add(rejected);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(rejected.getInputStream(), StandardCharsets.US_ASCII));
+            Assert.assertEquals("error too many query clients", reader.readLine());
+            Assert.assertNull(reader.readLine());
+
+            Socket longLine = sockets.get(0);
+            longLine.getOutputStream().write("contains".repeat(10000).getBytes(StandardCharsets.US_ASCII));
+            reader = new BufferedReader(new InputStreamReader(longLine.getInputStream(), StandardCharsets.US_ASCII));
+            Assert.assertEquals("error query longer than 65536 characters", reader.readLine());
+            Assert.assertNull(reader.readLine());
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            queryServer.close();
+            logFileTask.close();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+
+public class SelectorEngineTest {
+
+    private static final int PORT = 4100;
+    private static final int MAX_CLIENTS = 2;
+
+    private Server server;
+    private Thread serverThread;
+    private List<Socket> clientSockets;
+
+    @Before
+    public void setUp() throws InterruptedException {
+        ServerOptions options = new ServerOptions();
+        options.setConnectionMode(ConnectionMode.SELECTOR);
+        clientSockets = new ArrayList<>();
+        server = new Server(PORT, MAX_CLIENTS, options);
+        serverThread = new Thread(() -> server.run());
+        serverThread.start();
+        Thread.sleep(1000);
+    }
+
+    @After
+    public void tearDown() throws IOException, InterruptedException {
+        for (Socket clientSocket : clientSockets) {
+            clientSocket.close();
+        }
+        if (!server.getServerSocket().isClosed()) {
+            PrintWriter writer = connect();
+            writer.println("terminate");
+        }
+        serverThread.join(30000);
+    }
+
+    @Test
+    public void testAcceptsNineDigits() throws IOException, InterruptedException {
+        PrintWriter writer = connect();
+        writer.println("012345678");
+        Thread.sleep(500);
+        Assert.assertEquals(MAX_CLIENTS - 1, server.getServerAccess().availablePermits());
+    }
+
+    @Test
+    public void testDisconnectsInvalidInput() throws IOException, InterruptedException {
+        PrintWriter writer = connect();
+        writer.println("test");
+        Thread.sleep(500);
+        Assert.assertEquals(MAX_CLIENTS, server.getServerAccess().availablePermits());
+    }
+
+    @Test
+    public void testLimitsConcurrentClients() throws IOException, InterruptedException {
+        connect();
+        connect();
+        PrintWriter waitingWriter = connect();
+        waitingWriter.println("terminate");
+        Thread.sleep(500);
+        Assert.assertFalse(server.getServerSocket().isClosed());
+    }
+
+    @Test
+    public void testAcceptsTerminate() throws IOException, InterruptedException {
+        PrintWriter writer = connect();
+        writer.println("terminate");
+        serverThread.join(30000);
+        Assert.assertTrue(server.getServerSocket().isClosed());
+        Assert.assertTrue(server.getThreadPool().isTerminated());
+    }
+
+    @Test
+    public void testKeepsTheInputOfAHotClientWithoutBlockingASlowOne() throws IOException, InterruptedException {
+        ServerOptions options = new ServerOptions();
+        options.setClientInFlightLimit(4);
+        options.setLogFile("selector-credits.log");
+        LogFileTask logFileTask = new LogFileTask(new IntRingBuffer(1024), options); //its writers aren't started yet
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+             SocketChannel hotChannel = SocketChannel.open(serverChannel.getLocalAddress());
+             SocketChannel slowChannel = SocketChannel.open(serverChannel.getLocalAddress())) {
+            SelectorConnection hotClient = new SelectorConnection(hotChannel, null, logFileTask);
+            SelectorConnection slowClient = new SelectorConnection(slowChannel, null, logFileTask);
+
+            Assert.assertTrue(hotClient.process(lines(1, 2, 3, 4, 5, 6))); //returns instead of waiting for credits
+            Assert.assertTrue(hotClient.hasPendingInput());
+            Assert.assertFalse(hotClient.hasCredits());
+            Assert.assertTrue(logFileTask.isReceived(4));
+            Assert.assertFalse(logFileTask.isReceived(5));
+
+            Assert.assertTrue(slowClient.process(lines(7)));
+            Assert.assertTrue(logFileTask.isReceived(7));
+
+            logFileTask.run();
+            while (!hotClient.hasCredits()) { //waits for the writer to drain the numbers of the hot client
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(hotClient.processPendingInput());
+            Assert.assertFalse(hotClient.hasPendingInput());
+            Assert.assertTrue(logFileTask.isReceived(6));
+            hotClient.markClosed();
+            slowClient.markClosed();
+        } finally {
+            logFileTask.close();
+            Files.deleteIfExists(Paths.get("selector-credits.log"));
+        }
+    }
+
+    private ByteBuffer lines(int... numbers) {
+        StringBuilder input = new StringBuilder();
+        for (int number : numbers) {
+            input.append(String.format("%09d", number)).append(System.lineSeparator());
+        }
+        return ByteBuffer.wrap(input.toString().getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private PrintWriter connect() throws IOException {
+        Socket clientSocket = new Socket(InetAddress.getLocalHost(), PORT);
+        clientSockets.add(clientSocket);
+        return new PrintWriter(clientSocket.getOutputStream(), true);
+    }
+}
@@ -0,0 +1,35 @@
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ServerMetricsTest {
+
+    @Test
+    public void testSampledLatencyIsRecordedOnCommit() throws InterruptedException {
+        IntRingBuffer queue = new IntRingBuffer(1024);
+        ServerMetrics metrics = new ServerMetrics(queue, new FlowControl(queue, 90, 50), 1024);
+        for (int i = 0; i < 128; i++) {
+            metrics.countUnique(queue.put(i));
+        }
+        queue.drainTo(new int[128]);
+        metrics.recordCommit(100, 100);
+        Assert.assertEquals(2, metrics.getPersistLatencyNanos().getCount());
+        metrics.recordCommit(28, 128);
+        Assert.assertEquals(2, metrics.getPersistLatencyNanos().getCount());
+        Assert.assertEquals(2, metrics.getWriterCommits());
+        Assert.assertEquals(64, metrics.getWriterMeanBatchSize(), 0);
+        Assert.assertEquals(128, metrics.getUniqueNumbers());
+    }
+
+    @Test
+    public void testClientsAreTrackedWhileConnected() {
+        IntRingBuffer queue = new IntRingBuffer(16);
+        ServerMetrics metrics = new ServerMetrics(queue, new FlowControl(queue, 90, 50), 16);
+        ClientMetrics client = metrics.openClient("client");
+        client.addNumbers(5);
+        Assert.assertEquals(1, metrics.getActiveConnections());
+        Assert.assertEquals(5, client.getNumbers());
+        metrics.closeClient(client);
+        Assert.assertEquals(0, metrics.getActiveConnections());
+        Assert.assertEquals(1, metrics.getAcceptedConnections());
+    }
+}
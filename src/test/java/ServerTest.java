@@ -1,3 +1,4 @@
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -7,7 +8,9 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.net.Socket;
-import java.util.Date;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 
 
 public class ServerTest {
@@ -22,7 +25,16 @@ public class ServerTest {
             server.run();
         });
         serverThread.start();
-        Thread.sleep(5000);
+        while (server.getServerSocket() == null && serverThread.isAlive()) { //waits for the server socket to be bound
+            Thread.sleep(10);
+        }
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        server.terminate();
+        serverThread.join(10000);
+        Assert.assertFalse(serverThread.isAlive());
     }
 
     @Test
@@ -38,12 +50,18 @@ public class ServerTest {
     @Test
     public void testAcceptsTerminate() throws IOException, InterruptedException {
         Socket clientSocket = new Socket(InetAddress.getLocalHost(), 4000);
+        Socket otherClientSocket = new Socket(InetAddress.getLocalHost(), 4000);
         OutputStream output = clientSocket.getOutputStream();
         PrintWriter writer = new PrintWriter(output, true);
+        writer.println("000000001");
+        writer.println("000000002");
         writer.println("terminate");
-        Thread.sleep(30000); //waits for 30 seconds for server to shut down
+        serverThread.join(10000); //the server returns once every number has been drained
+        Assert.assertFalse(serverThread.isAlive());
         Assert.assertTrue(server.getServerSocket().isClosed());
         Assert.assertTrue(server.getThreadPool().isTerminated());
+        Assert.assertEquals(-1, otherClientSocket.getInputStream().read());
+        Assert.assertEquals(Arrays.asList("1", "2"), Files.readAllLines(Paths.get("numbers.log")));
     }
 
     @Test
@@ -52,40 +70,29 @@ public class ServerTest {
         OutputStream output = clientSocket.getOutputStream();
         PrintWriter writer = new PrintWriter(output, true);
         writer.println("012345678");
-        Thread.sleep(5000);
-        Assert.assertFalse(clientSocket.isClosed());
+        ServerMetrics metrics = server.getLogFileTask().getMetrics();
+        while (metrics.getUniqueNumbers() == 0) { //waits for the number to be queued
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(0, metrics.getInvalidLines());
+        Assert.assertEquals(1, metrics.getActiveConnections());
+        Assert.assertEquals(4, server.getServerAccess().availablePermits());
     }
 
 
     @Test
     public void testServerReceivedARandomString() throws IOException, InterruptedException {
-        Assert.assertEquals(4, server.getServerAccess().availablePermits());
+        Assert.assertEquals(5, server.getServerAccess().availablePermits());
         Socket clientSocket = new Socket(InetAddress.getLocalHost(), 4000);
         OutputStream output = clientSocket.getOutputStream();
         PrintWriter writer = new PrintWriter(output, true);
         writer.println("test");
-        Thread.sleep(5000);
-        Assert.assertEquals(4, server.getServerAccess().availablePermits());
-    }
-
-    @Test
-    public void testThroughput() throws IOException {
-        Socket clientSocket = new Socket(InetAddress.getLocalHost(), 4000);
-        OutputStream output = clientSocket.getOutputStream();
-        PrintWriter writer = new PrintWriter(output, true);
-
-        Socket clientSocket2 = new Socket(InetAddress.getLocalHost(), 4000);
-        OutputStream output2 = clientSocket2.getOutputStream();
-        PrintWriter writer2 = new PrintWriter(output2, true);
-        Date startTime = new Date();
-        for (int i = 0; i < 2_000_000; i++) {
-            writer.println(String.format("%09d", i));
-            writer2.println(String.format("%09d", i));
+        clientSocket.setSoTimeout(10000);
+        Assert.assertEquals(-1, clientSocket.getInputStream().read()); //the server disconnects the client
+        while (server.getServerAccess().availablePermits() < 5) { //waits for the permit to be released
+            Thread.sleep(10);
         }
-        Date endTime = new Date();
-        writer.println("terminate");
-        System.out.println("Milliseconds: " + (double)((endTime.getTime() - startTime.getTime())));
+        Assert.assertEquals(1, server.getLogFileTask().getMetrics().getInvalidLines());
     }
 
 }
-